@@ -0,0 +1,50 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Locations and helpers shared by the benchmarks. Run them from the repository root, or point
+// -Dbenchmark.dictionary / -Dbenchmark.samples at the dictionary and the sample sources.
+final class BenchmarkFixtures {
+    static final String DICTIONARY = System.getProperty("benchmark.dictionary", "dictionary.txt");
+    static final String SAMPLES = System.getProperty("benchmark.samples", "TestFiles");
+
+    private BenchmarkFixtures() {
+    }
+
+    // Loads the scoring dictionary in the requested format ("text" or "packed")
+    static void loadDictionary(String format) throws IOException {
+        if (format.equals("packed")) {
+            File packed = File.createTempFile("dictionary", ".bin");
+            packed.deleteOnExit();
+            PackedDictionary.write(TextDictionary.load(DICTIONARY).words(), packed.getPath());
+            ComprehensibilityScoreCalculator.loadScoringDictionary(packed.getPath());
+        } else {
+            ComprehensibilityScoreCalculator.loadScoringDictionary(DICTIONARY);
+        }
+    }
+
+    // Turns the score caches off so every call measures the real scoring work; takes effect
+    // with the next loadDictionary
+    static void disableCaches() {
+        ComprehensibilityScoreCalculator.cacheSize = 0;
+    }
+
+    static File sample(Language language) {
+        switch (language) {
+            case JAVA: return new File(SAMPLES, "ExampleClass.java");
+            case CSHARP: return new File(SAMPLES, "ExampleC#.cs");
+            case PYTHON: return new File(SAMPLES, "ExamplePython.py");
+            case JAVASCRIPT: return new File(SAMPLES, "ExampleJavaScript.js");
+            default: return new File(SAMPLES, "ExampleC++.cpp");
+        }
+    }
+
+    static void deleteTree(File root) throws IOException {
+        if (root == null || !root.exists()) return;
+        Files.walk(root.toPath())
+            .sorted((a, b) -> b.getNameCount() - a.getNameCount())
+            .forEach(path -> path.toFile().delete());
+    }
+}
@@ -0,0 +1,49 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of getting a usable dictionary: parsing dictionary.txt versus mapping the compiled form
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DictionaryBenchmark {
+    private File packed;
+
+    @Setup
+    public void compile() throws IOException {
+        packed = File.createTempFile("dictionary", ".bin");
+        PackedDictionary.write(TextDictionary.load(BenchmarkFixtures.DICTIONARY).words(), packed.getPath());
+    }
+
+    @TearDown
+    public void delete() {
+        packed.delete();
+    }
+
+    @Benchmark
+    public WordDictionary loadText() throws IOException {
+        return TextDictionary.load(BenchmarkFixtures.DICTIONARY);
+    }
+
+    @Benchmark
+    public WordDictionary openPacked() throws IOException {
+        return PackedDictionary.open(packed.getPath());
+    }
+}
@@ -0,0 +1,82 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Full runs (walk, extract, score, write reports) over a synthetic tree built from the
+// TestFiles samples; the "files" counter reports files analyzed per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"2000"})
+    public int fileCount;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private File tree;
+    private File output;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long files;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkFixtures.loadDictionary("packed");
+        tree = Files.createTempDirectory("comprehensibility-tree").toFile();
+        output = Files.createTempDirectory("comprehensibility-output").toFile();
+
+        Language[] languages = Language.values();
+        for (int i = 0; i < fileCount; i++) {
+            File sample = BenchmarkFixtures.sample(languages[i % languages.length]);
+            File dir = new File(tree, "module" + (i % 20) + "/package" + (i % 7));
+            dir.mkdirs();
+            Files.copy(sample.toPath(), new File(dir, "File" + i + "_" + sample.getName()).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        ComprehensibilityScoreCalculator.threadCount = threads;
+        ComprehensibilityScoreCalculator.outputDirectory = output.getPath();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteTree(tree);
+        BenchmarkFixtures.deleteTree(output);
+    }
+
+    @Benchmark
+    public void analyzeTree(Counters counters) {
+        ComprehensibilityScoreCalculator.runAnalysis(
+            Collections.singletonList(tree.getPath()), EnumSet.allOf(Language.class));
+        counters.files += fileCount;
+    }
+}
@@ -0,0 +1,48 @@
+package main;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Entity extraction of one TestFiles sample per language, single-pass scanner vs. regexes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    @Param({"JAVA", "CSHARP", "PYTHON", "JAVASCRIPT", "CPP"})
+    public String languageName;
+
+    @Param({"lexer", "regex"})
+    public String extractorKind;
+
+    private ComprehensibilityScoreCalculator.EntityExtractor extractor;
+    private String samplePath;
+
+    @Setup
+    public void setUp() {
+        Language language = Language.valueOf(languageName);
+        extractor = extractorKind.equals("regex") ? language.regexExtractor : language.lexerExtractor;
+        samplePath = BenchmarkFixtures.sample(language).getPath();
+    }
+
+    @Benchmark
+    public List<String[]> extract() throws IOException {
+        return extractor.extract(samplePath);
+    }
+}
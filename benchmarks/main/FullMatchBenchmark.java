@@ -0,0 +1,138 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Cost of deciding whether a word is readable: the built-in set plus a HashSet<String> of
+// the dictionary (how scoring worked before layered dictionaries), the same behind a Bloom
+// filter, and a compiled dictionary without and with its stored filter (the layered
+// dictionary as used for scoring). Words are dictionary words, non-words, or an even mix.
+// The setup prints the heap footprint of the HashSet next to the size of the filter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FullMatchBenchmark {
+
+    @Param({"hits", "misses", "mixed"})
+    public String words;
+
+    private String[] probes;
+    private Set<String> builtins;
+    private TextDictionary text;
+    private PackedDictionary packed;
+    private BloomFilter textFilter;
+    private LayeredDictionary layeredPacked;
+    private File packedFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = TextDictionary.load(BenchmarkFixtures.DICTIONARY);
+        packedFile = File.createTempFile("dictionary", ".bin");
+        PackedDictionary.write(text.words(), packedFile.getPath());
+        packed = PackedDictionary.open(packedFile.getPath());
+        builtins = Scorer.BUILTIN_READABLES;
+        textFilter = new BloomFilter(text.size() + builtins.size());
+        text.forEachWord(textFilter::add);
+        builtins.forEach(textFilter::add);
+        layeredPacked = LayeredDictionary.of(packed);
+
+        List<String> dictionaryWords = new ArrayList<>(text.words());
+        Random random = new Random(42);
+        List<String> selected = new ArrayList<>();
+        while (selected.size() < 4096) {
+            boolean hit = words.equals("hits") || (words.equals("mixed") && random.nextBoolean());
+            if (hit) {
+                // A copy, as scoring looks up words cut from identifiers, not the dictionary's strings
+                selected.add(new String(dictionaryWords.get(random.nextInt(dictionaryWords.size()))));
+            } else {
+                // Identifier-like fragments that are not words, e.g. "qrtz" or "mgrcfg"
+                StringBuilder word = new StringBuilder();
+                int length = 3 + random.nextInt(8);
+                for (int i = 0; i < length; i++) word.append((char) ('a' + random.nextInt(26)));
+                if (!text.contains(word.toString())) selected.add(word.toString());
+            }
+        }
+        probes = selected.toArray(new String[0]);
+
+        System.out.printf("%nFootprint: HashSet<String> dictionary %.1f MB on the heap, Bloom filter %.1f KB%n",
+                hashSetBytes() / 1048576.0, textFilter.sizeInBytes() / 1024.0);
+    }
+
+    @TearDown
+    public void delete() {
+        packedFile.delete();
+    }
+
+    // Heap taken by the words and a HashSet holding them, as when loading dictionary.txt
+    private static long hashSetBytes() throws IOException {
+        long before = usedHeap();
+        Set<String> set = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(BenchmarkFixtures.DICTIONARY))) {
+            String line;
+            while ((line = reader.readLine()) != null) set.add(line.trim().toLowerCase());
+        }
+        long after = usedHeap();
+        if (set.isEmpty()) throw new IllegalStateException("Empty dictionary");
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Benchmark
+    public void hashSet(Blackhole blackhole) {
+        for (String word : probes) {
+            blackhole.consume(builtins.contains(word) || (word.length() >= 3 && text.contains(word)));
+        }
+    }
+
+    @Benchmark
+    public void bloomFilterHashSet(Blackhole blackhole) {
+        for (String word : probes) {
+            blackhole.consume(textFilter.mightContain(word)
+                    && (builtins.contains(word) || (word.length() >= 3 && text.contains(word))));
+        }
+    }
+
+    @Benchmark
+    public void packed(Blackhole blackhole) {
+        for (String word : probes) {
+            blackhole.consume(builtins.contains(word) || (word.length() >= 3 && packed.contains(word)));
+        }
+    }
+
+    @Benchmark
+    public void bloomFilterPacked(Blackhole blackhole) {
+        for (String word : probes) {
+            blackhole.consume(layeredPacked.mightBeReadable(word) && layeredPacked.isReadable(word));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package main;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Single-word scoring for the three outcomes (full match, partial match, no match) and
+// whole-identifier scoring, with the score caches disabled
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({"text", "packed"})
+    public String dictionaryFormat;
+
+    public String hitWord = "network";
+    public String partialWord = "netwrk";
+    public String missWord = "qzxjqv";
+    public String identifier = "getUserAccountHTTPResponse2Json";
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkFixtures.disableCaches();
+        BenchmarkFixtures.loadDictionary(dictionaryFormat);
+    }
+
+    @Benchmark
+    public double wordHit() {
+        return ComprehensibilityScoreCalculator.evaluateWordScore(hitWord);
+    }
+
+    @Benchmark
+    public double wordPartial() {
+        return ComprehensibilityScoreCalculator.evaluateWordScore(partialWord);
+    }
+
+    @Benchmark
+    public double wordMiss() {
+        return ComprehensibilityScoreCalculator.evaluateWordScore(missWord);
+    }
+
+    @Benchmark
+    public double identifier() {
+        return ComprehensibilityScoreCalculator.evaluateEntityScore(identifier, "Method");
+    }
+}
@@ -0,0 +1,78 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Scoring of words that are not in the dictionary, with and without --segment-words: the
+// run-together names segmentation recognizes, and misspelled or abbreviated identifiers as
+// found in real code, most of which fall through to the partial-match scan in both modes.
+// Score caches are disabled.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentationBenchmark {
+
+    @Param({"text", "packed"})
+    public String dictionaryFormat;
+
+    public String[] runTogether = {
+        "getuserbyid", "maxretrycount", "xmlhttprequest", "parseconfigfile", "isvalidtoken", "totalamount"
+    };
+    public String[] misspelled = {
+        "netwrk", "cfg", "usrMgr", "tmpBuf", "hdlr", "lstnr"
+    };
+
+    private Scorer partialMatch;
+    private Scorer segmentation;
+
+    @Setup
+    public void setUp() throws IOException {
+        String path = BenchmarkFixtures.DICTIONARY;
+        if (dictionaryFormat.equals("packed")) {
+            File packed = File.createTempFile("dictionary", ".bin");
+            packed.deleteOnExit();
+            PackedDictionary.write(TextDictionary.load(path).words(), packed.getPath());
+            path = packed.getPath();
+        }
+        partialMatch = Scorer.load(Paths.get(path), 0, false);
+        segmentation = Scorer.load(Paths.get(path), 0, true);
+    }
+
+    @Benchmark
+    public void runTogetherPartialMatch(Blackhole blackhole) {
+        for (String word : runTogether) blackhole.consume(partialMatch.scoreWord(word));
+    }
+
+    @Benchmark
+    public void runTogetherSegmentation(Blackhole blackhole) {
+        for (String word : runTogether) blackhole.consume(segmentation.scoreWord(word));
+    }
+
+    @Benchmark
+    public void misspelledPartialMatch(Blackhole blackhole) {
+        for (String word : misspelled) blackhole.consume(partialMatch.scoreWord(word));
+    }
+
+    @Benchmark
+    public void misspelledSegmentation(Blackhole blackhole) {
+        for (String word : misspelled) blackhole.consume(segmentation.scoreWord(word));
+    }
+}
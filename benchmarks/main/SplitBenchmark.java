@@ -0,0 +1,57 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Identifier splitting: the hand-written tokenizer against the regex split it replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitBenchmark {
+    private static final String SPLIT_REGEX =
+        "(?<=[a-z])(?=[A-Z])" +
+        "|(?<=[A-Z])(?=[A-Z][a-z])" +
+        "|(?<=[a-z])(?=[0-9])" +
+        "|(?<=[0-9])(?=[A-Za-z])" +
+        "|[-_]";
+
+    public String[] identifiers = {
+        "getUserAccount", "HTTPServerConfig", "max_retry_count", "utf8Decoder",
+        "kebab-case-name", "XMLHttpRequest2", "i", "CONSTANT_VALUE"
+    };
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        for (String name : identifiers) {
+            int end;
+            for (int start = 0; start < name.length(); start = end) {
+                if (IdentifierTokenizer.isSeparator(name.charAt(start))) {
+                    end = start + 1;
+                    continue;
+                }
+                end = IdentifierTokenizer.wordEnd(name, start);
+                blackhole.consume(end);
+            }
+        }
+    }
+
+    @Benchmark
+    public void regexSplit(Blackhole blackhole) {
+        for (String name : identifiers) {
+            blackhole.consume(name.split(SPLIT_REGEX));
+        }
+    }
+}
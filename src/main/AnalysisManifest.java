@@ -0,0 +1,198 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Per-file record of the last analysis (size, modification time, content hash and entity
+// results), kept next to the reports so unchanged files are not extracted and scored again.
+// A file is reused when its size and mtime are unchanged, or when only the mtime changed
+// and the content hash still matches (e.g. after a fresh checkout).
+class AnalysisManifest {
+    private static final int MAGIC = 0x43534d32; // "CSM2"
+
+    private static class Entry {
+        final long size;
+        final long modified;
+        final byte[] hash;
+        final EntityStore results;
+        final int resultFile;
+
+        Entry(long size, long modified, byte[] hash, EntityStore results, int resultFile) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.results = results;
+            this.resultFile = resultFile;
+        }
+    }
+
+    private final File file;
+    private final long fingerprint;
+    private final Map<String, Entry> previous = new ConcurrentHashMap<>();
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger analyzed = new AtomicInteger();
+
+    AnalysisManifest(File file, long fingerprint) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+    }
+
+    // Reads the manifest if it exists and was written with the same dictionary fingerprint
+    static AnalysisManifest load(File file, long fingerprint) throws IOException {
+        AnalysisManifest manifest = new AnalysisManifest(file, fingerprint);
+        if (!file.isFile()) return manifest;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readLong() != fingerprint) {
+                return manifest;
+            }
+            // All previous results share one store, one file range per source file
+            int files = in.readInt();
+            EntityStore results = new EntityStore(in.readInt());
+            // Equal names share one string while loading; dropped with the loader
+            Map<String, String> names = new HashMap<>();
+            for (int f = 0; f < files; f++) {
+                String path = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                int resultFile = results.beginFile();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    String shared = names.putIfAbsent(name, name);
+                    byte type = in.readByte();
+                    double score = in.readDouble();
+                    results.add(shared != null ? shared : name, type, EntityStore.readabilityOf(score), score);
+                }
+                manifest.previous.put(path, new Entry(size, modified, hash, results, resultFile));
+            }
+        }
+        return manifest;
+    }
+
+    // Returns the recorded results (a single-file store) when the file is unchanged since the
+    // last run, otherwise null
+    EntityStore lookup(File source) throws IOException {
+        String path = source.getAbsolutePath();
+        Entry entry = previous.get(path);
+        if (entry == null) return null;
+
+        long size = source.length();
+        long modified = source.lastModified();
+        if (size != entry.size) return null;
+        if (modified != entry.modified) {
+            byte[] hash = hash(source);
+            if (!Arrays.equals(hash, entry.hash)) return null;
+            entry = new Entry(size, modified, hash, entry.results, entry.resultFile);
+        }
+        current.put(path, entry);
+        reused.incrementAndGet();
+        return entry.results.file(entry.resultFile);
+    }
+
+    // Stores the fresh single-file results of a file that was (re-)analyzed, with the size and
+    // mtime taken before it was read and the hash of the content the results came from. A file
+    // saved again while it was analyzed then has a newer mtime and a different hash, so the
+    // next run analyzes it again instead of reusing results of the older content.
+    void record(File source, long size, long modified, byte[] hash, EntityStore results) {
+        current.put(source.getAbsolutePath(), new Entry(size, modified, hash, results, 0));
+        analyzed.incrementAndGet();
+    }
+
+    // Writes the files seen in this run; files that disappeared are dropped
+    void save() throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(current.entrySet());
+            int total = 0;
+            for (Map.Entry<String, Entry> item : entries) {
+                Entry entry = item.getValue();
+                total += entry.results.fileEnd(entry.resultFile) - entry.results.fileStart(entry.resultFile);
+            }
+
+            out.writeInt(MAGIC);
+            out.writeLong(fingerprint);
+            out.writeInt(entries.size());
+            out.writeInt(total);
+            for (Map.Entry<String, Entry> item : entries) {
+                Entry entry = item.getValue();
+                EntityStore results = entry.results;
+                out.writeUTF(item.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeByte(entry.hash.length);
+                out.write(entry.hash);
+                int start = results.fileStart(entry.resultFile);
+                int end = results.fileEnd(entry.resultFile);
+                out.writeInt(end - start);
+                for (int i = start; i < end; i++) {
+                    out.writeUTF(results.name(i));
+                    out.writeByte(results.typeCode(i));
+                    out.writeDouble(results.score(i));
+                }
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    int reusedCount() {
+        return reused.get();
+    }
+
+    int analyzedCount() {
+        return analyzed.get();
+    }
+
+    int removedCount() {
+        int removed = 0;
+        for (String path : previous.keySet()) {
+            if (!current.containsKey(path)) removed++;
+        }
+        return removed;
+    }
+
+    // Digest of the content hashes, for hashing content as it is read
+    static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static byte[] hash(File source) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new FileInputStream(source)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+}
@@ -0,0 +1,151 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Staged producer/consumer pipeline: items submitted in order pass through a chain of stages,
+// each with its own pool of worker threads, and reach a single sink thread in submission order.
+// Stages are connected by bounded queues, and at most `capacity` items are in flight between
+// submit and the sink, so a slow stage (or a slow item holding back the order) blocks the
+// producer instead of letting finished work pile up in memory. I/O-bound and CPU-bound stages
+// overlap: while some threads wait on the disk, others extract and score.
+final class AnalysisPipeline<T> implements Closeable {
+    interface Stage<T> {
+        void process(T item) throws IOException;
+    }
+
+    private static final class Slot<T> {
+        final long sequence;
+        final T item;
+        boolean failed;
+
+        Slot(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+
+    private final Semaphore inFlight;
+    private final int capacity;
+    private final List<BlockingQueue<Slot<T>>> queues = new ArrayList<>();
+    private final List<ExecutorService> pools = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private long submitted = 0;
+
+    // threads[i] workers run stages.get(i); the sink runs on one thread, in submission order
+    AnalysisPipeline(List<Stage<T>> stages, int[] threads, Stage<T> sink, int capacity) {
+        this.capacity = capacity;
+        this.inFlight = new Semaphore(capacity);
+        for (int i = 0; i <= stages.size(); i++) queues.add(new ArrayBlockingQueue<>(capacity));
+
+        for (int i = 0; i < stages.size(); i++) {
+            Stage<T> stage = stages.get(i);
+            BlockingQueue<Slot<T>> input = queues.get(i);
+            BlockingQueue<Slot<T>> output = queues.get(i + 1);
+            ExecutorService pool = Executors.newFixedThreadPool(threads[i], AnalysisPipeline::workerThread);
+            for (int t = 0; t < threads[i]; t++) {
+                pool.execute(() -> runStage(stage, input, output));
+            }
+            pools.add(pool);
+        }
+        ExecutorService writer = Executors.newSingleThreadExecutor(AnalysisPipeline::workerThread);
+        writer.execute(() -> runSink(sink, queues.get(stages.size())));
+        pools.add(writer);
+    }
+
+    private static Thread workerThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "analysis-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Hands an item to the first stage; blocks while `capacity` items are in flight
+    void submit(T item) throws IOException {
+        try {
+            rethrowFailure();
+            inFlight.acquire();
+            queues.get(0).put(new Slot<>(submitted++, item));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Analysis interrupted", e);
+        }
+    }
+
+    // Waits until every submitted item has passed the sink, then reports the first failure
+    void finish() throws IOException {
+        try {
+            inFlight.acquire(capacity);
+            inFlight.release(capacity);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Analysis interrupted", e);
+        }
+        rethrowFailure();
+    }
+
+    private void runStage(Stage<T> stage, BlockingQueue<Slot<T>> input, BlockingQueue<Slot<T>> output) {
+        try {
+            while (true) {
+                Slot<T> slot = input.take();
+                // After a failure the items still pass through, so the sink can release them
+                if (!slot.failed && failure.get() == null) {
+                    try {
+                        stage.process(slot.item);
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        slot.failed = true;
+                    }
+                }
+                output.put(slot);
+            }
+        } catch (InterruptedException e) {
+            // Pipeline closed
+        }
+    }
+
+    private void runSink(Stage<T> sink, BlockingQueue<Slot<T>> input) {
+        Map<Long, Slot<T>> waiting = new HashMap<>();
+        long next = 0;
+        try {
+            while (true) {
+                Slot<T> slot = input.take();
+                waiting.put(slot.sequence, slot);
+                while ((slot = waiting.remove(next)) != null) {
+                    if (!slot.failed && failure.get() == null) {
+                        try {
+                            sink.process(slot.item);
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                    next++;
+                    inFlight.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Pipeline closed
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        Throwable cause = failure.get();
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService pool : pools) pool.shutdownNow();
+    }
+}
@@ -0,0 +1,339 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Partial result of one shard of a scan split over several processes or machines
+// (--shard K/N). Every shard walks the whole tree but analyzes only the files whose path
+// hashes to it, and writes their entity results here, in walk order, instead of the CSV
+// reports. Walk order depends on the file system, so shard 0 also records every path its
+// walk found, in order, between its own results. --merge opens the results of all N shards
+// at once and follows shard 0's walk: for each path it takes the next result of the shard the
+// path hashes to and passes it on to the reports, which then hold the same rows and summed
+// average as a single run on that machine. Only one file's results are in memory at a time.
+final class AnalysisShard implements Closeable {
+    private static final int MAGIC = 0x43535332; // "CSS2"
+    private static final byte FILE_RECORD = 1;
+    private static final byte WALK_RECORD = 2;
+    private static final byte END_RECORD = 0;
+    private static final Pattern FILE_NAME = Pattern.compile("Comprehensibility_Shard_(\\d+)_of_(\\d+)\\.bin");
+
+    final File file;
+    final int shard;
+    final int shards;
+    final long fingerprint;
+    private final DataInputStream in;
+    // The current record: its path, and its results unless it only records a walked path
+    private String path;
+    private EntityStore results;
+    private boolean ended = false;
+    private int recordCount = 0;
+    // From the end of the result, once read
+    private int fileCount;
+    private int walkedCount;
+
+    private AnalysisShard(File file, DataInputStream in) throws IOException {
+        this.file = file;
+        this.in = in;
+        if (in.readInt() != MAGIC) throw new IOException(file + " is not a shard result");
+        fingerprint = in.readLong();
+        shard = in.readInt();
+        shards = in.readInt();
+        if (shard < 0 || shard >= shards) throw new IOException(file + " is not a shard result");
+    }
+
+    static String fileName(int shard, int shards) {
+        return "Comprehensibility_Shard_" + shard + "_of_" + shards + ".bin";
+    }
+
+    static boolean isShardFile(File file) {
+        return FILE_NAME.matcher(file.getName()).matches();
+    }
+
+    // The shard that analyzes a path. String.hashCode is the same on every JVM, so all shards
+    // agree; the bits are mixed (MurmurHash3 finalizer) so similar paths spread evenly.
+    static int shardOf(String path, int shards) {
+        int h = path.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, shards);
+    }
+
+    // Opens a shard result and reads its first record
+    static AnalysisShard open(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            AnalysisShard result = new AnalysisShard(file, in);
+            result.advance();
+            return result;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // Moves to the next record; at the end, reads and checks the counts that close the result
+    private void advance() throws IOException {
+        byte kind = in.readByte();
+        if (kind == END_RECORD) {
+            fileCount = in.readInt();
+            walkedCount = in.readInt();
+            ended = true;
+            path = null;
+            results = null;
+            if (fileCount != recordCount) throw new IOException(file + " is incomplete");
+            return;
+        }
+        if (kind != FILE_RECORD && kind != WALK_RECORD) throw new IOException(file + " is not a shard result");
+        path = in.readUTF();
+        results = null;
+        if (kind == WALK_RECORD) return;
+
+        int count = in.readInt();
+        results = new EntityStore(count);
+        results.beginFile();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte type = in.readByte();
+            double score = in.readDouble();
+            results.add(name, type, EntityStore.readabilityOf(score), score);
+        }
+        recordCount++;
+    }
+
+    // True when shard 0 walked no files at all, so there is nothing to merge
+    boolean isEmpty() {
+        return ended && walkedCount == 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Opens the shard results named by inputs (files, or directories holding them) and checks
+    // that together they are all N shards of the same split, computed with the same dictionary.
+    // Returns them by shard, each at its first record.
+    static AnalysisShard[] openAll(List<String> inputs) throws IOException {
+        // The same result may be named twice, e.g. as a file and through its directory
+        Set<File> shardFiles = new LinkedHashSet<>();
+        for (String input : inputs) {
+            File file = new File(input);
+            if (file.isDirectory()) {
+                File[] found = file.listFiles(AnalysisShard::isShardFile);
+                if (found != null) {
+                    Arrays.sort(found);
+                    for (File shardFile : found) shardFiles.add(shardFile.getCanonicalFile());
+                }
+            } else if (file.isFile()) {
+                shardFiles.add(file.getCanonicalFile());
+            } else {
+                throw new IOException("Shard result not found: " + input);
+            }
+        }
+        if (shardFiles.isEmpty()) throw new IOException("No shard results in " + String.join(", ", inputs));
+
+        List<AnalysisShard> opened = new ArrayList<>();
+        try {
+            AnalysisShard[] shards = null;
+            for (File file : shardFiles) {
+                AnalysisShard shard = open(file);
+                opened.add(shard);
+                if (shards == null) shards = new AnalysisShard[shard.shards];
+                if (shard.shards != shards.length) {
+                    throw new IOException(file + " is shard " + shard.shard + " of " + shard.shards
+                            + ", expected one of " + shards.length);
+                }
+                if (shards[shard.shard] != null) {
+                    throw new IOException("Two different results for shard " + shard.shard + " of " + shards.length);
+                }
+                shards[shard.shard] = shard;
+            }
+            for (int k = 0; k < shards.length; k++) {
+                if (shards[k] == null) throw new IOException("Missing result of shard " + k + " of " + shards.length);
+                if (shards[k].fingerprint != shards[0].fingerprint) {
+                    throw new IOException("Shard " + k + " was scored with a different dictionary or options");
+                }
+            }
+            return shards;
+        } catch (IOException e) {
+            closeAll(opened.toArray(new AnalysisShard[0]));
+            throw e;
+        }
+    }
+
+    // Passes the results of every file shard 0 walked to report, in that order, reading each
+    // from the shard its path hashes to, and checks that the shards cover exactly that walk.
+    // Returns the number of files merged. The shards must have walked the tree in the same
+    // order, which holds for the same paths on the same kind of file system.
+    static int merge(AnalysisShard[] shards, ReportSink report) throws IOException {
+        AnalysisShard order = shards[0];
+        int merged = 0;
+        for (; !order.ended; order.advance()) {
+            String path = order.path;
+            int k = shardOf(path, shards.length);
+            AnalysisShard owner = shards[k];
+            EntityStore results;
+            if (k == 0) {
+                results = order.results;
+            } else {
+                results = !owner.ended && path.equals(owner.path) ? owner.results : null;
+                if (results != null) owner.advance();
+            }
+            if (results == null) {
+                throw new IOException("Shard " + k + " has no result for " + path
+                        + " at this point of shard 0's walk; the shards scanned different trees or orders");
+            }
+            report.writeFile(new File(path), results);
+            merged++;
+        }
+        for (AnalysisShard shard : shards) {
+            if (!shard.ended) {
+                throw new IOException("Shard " + shard.shard + " holds a result for " + shard.path
+                        + ", which shard 0 did not walk; the shards scanned different trees");
+            }
+            if (shard.walkedCount != order.walkedCount) {
+                throw new IOException("Shard " + shard.shard + " walked " + shard.walkedCount + " files, shard 0 walked "
+                        + order.walkedCount + "; the shards scanned different trees");
+            }
+        }
+        return merged;
+    }
+
+    static void closeAll(AnalysisShard[] shards) {
+        for (AnalysisShard shard : shards) {
+            if (shard == null) continue;
+            try {
+                shard.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + shard.file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Writes the partial result of one shard as the files are analyzed. The result goes to a
+    // temporary file that is renamed once complete, so a failed shard leaves no result behind.
+    static final class Writer implements ReportSink {
+        private final int shard;
+        private final int shards;
+        private final File file;
+        private final File temp;
+        private final DataOutputStream out;
+        // Shard 0: paths walked but not yet written, its own files among them
+        private final Queue<String> walked = new ConcurrentLinkedQueue<>();
+        private int walkedCount = 0;
+        private int fileCount = 0;
+        private double total = 0.0;
+        private boolean finished = false;
+
+        Writer(File directory, int shard, int shards, long fingerprint) throws IOException {
+            this.shard = shard;
+            this.shards = shards;
+            if (!directory.exists()) directory.mkdirs();
+            file = new File(directory, fileName(shard, shards));
+            temp = new File(file.getPath() + ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeLong(fingerprint);
+            out.writeInt(shard);
+            out.writeInt(shards);
+        }
+
+        // Counts a walked file; true when this shard analyzes it
+        boolean accept(File source) {
+            String path = source.getPath();
+            walkedCount++;
+            if (shard == 0) walked.add(path);
+            return shardOf(path, shards) == shard;
+        }
+
+        @Override
+        public void writeFile(File source, EntityStore results) throws IOException {
+            String path = source.getPath();
+            if (shard == 0) {
+                // Results arrive in walk order, so the paths of other shards walked before this
+                // file are at the head of the queue
+                for (String next = walked.poll(); !path.equals(next); next = walked.poll()) {
+                    if (next == null) throw new IOException(path + " was not walked");
+                    writeWalked(next);
+                }
+            }
+            out.writeByte(FILE_RECORD);
+            out.writeUTF(path);
+            int start = results.fileStart(0);
+            int end = results.fileEnd(0);
+            out.writeInt(end - start);
+            for (int i = start; i < end; i++) {
+                out.writeUTF(results.name(i));
+                out.writeByte(results.typeCode(i));
+                out.writeDouble(results.score(i));
+            }
+            total += results.fileAverage(0);
+            fileCount++;
+        }
+
+        private void writeWalked(String path) throws IOException {
+            out.writeByte(WALK_RECORD);
+            out.writeUTF(path);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            for (String path = walked.poll(); path != null; path = walked.poll()) writeWalked(path);
+            out.writeByte(END_RECORD);
+            out.writeInt(fileCount);
+            out.writeInt(walkedCount);
+            out.close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+        }
+
+        @Override
+        public void announce() {
+            System.out.println("Shard result generated: " + file.getPath());
+            System.out.printf("Shard %d of %d: %d of %d files analyzed, average %.2f%n", shard, shards,
+                    fileCount, walkedCount, fileCount == 0 ? 0.0 : total / fileCount);
+            System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------");
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (!finished) temp.delete();
+        }
+    }
+
+    // "K/N" -> {K, N}, or null when malformed
+    static int[] parseSpec(String spec) {
+        Matcher m = Pattern.compile("(\\d+)/(\\d+)").matcher(spec);
+        if (!m.matches()) return null;
+        try {
+            int shard = Integer.parseInt(m.group(1));
+            int shards = Integer.parseInt(m.group(2));
+            return shard < shards ? new int[]{shard, shards} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
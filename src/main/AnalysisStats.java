@@ -0,0 +1,202 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Timings and counters of one run: time per stage, throughput, dictionary work and the
+// slowest files. Workers update it concurrently; the summary and the JSON export read it at
+// the end of the run. Each analyzed file is also emitted as a JFR event, so a recording
+// (-XX:StartFlightRecording) shows the run without any of the options below.
+final class AnalysisStats {
+    static final int SLOWEST_FILES = 10;
+
+    enum Stage {
+        DICTIONARY_LOAD("Dictionary load", "dictionaryLoad"),
+        WALK("Directory walk", "walk"),
+        READ("Reading", "reading"),
+        EXTRACTION("Extraction", "extraction"),
+        SCORING("Scoring", "scoring"),
+        REPORT("Report writing", "reportWriting");
+
+        final String label;
+        final String jsonName;
+
+        Stage(String label, String jsonName) {
+            this.label = label;
+            this.jsonName = jsonName;
+        }
+    }
+
+    @Name("main.FileAnalyzed")
+    @Label("File Analyzed")
+    @Category("Comprehensibility")
+    @Description("Extraction and scoring of one source file")
+    static class FileEvent extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Entities")
+        int entities;
+
+        @Label("Bytes")
+        long bytes;
+
+        @Label("Reused")
+        @Description("Results taken from the incremental manifest")
+        boolean reused;
+    }
+
+    private static class FileTiming {
+        final String path;
+        final long nanos;
+        final int entities;
+
+        FileTiming(String path, long nanos, int entities) {
+            this.path = path;
+            this.nanos = nanos;
+            this.entities = entities;
+        }
+    }
+
+    private final long started = System.nanoTime();
+    private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+    final LongAdder files = new LongAdder();
+    final LongAdder reusedFiles = new LongAdder();
+    final LongAdder entities = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder dictionaryLookups = new LongAdder();
+    // Words the Bloom filter ruled out before a dictionary lookup
+    final LongAdder filteredLookups = new LongAdder();
+    final LongAdder partialMatchScans = new LongAdder();
+    final LongAdder trigramProbes = new LongAdder();
+    final LongAdder segmentationScans = new LongAdder();
+    // Min-heap holding the slowest files seen so far
+    private final PriorityQueue<FileTiming> slowest =
+        new PriorityQueue<>(Comparator.comparingLong((FileTiming t) -> t.nanos));
+
+    AnalysisStats() {
+        for (int i = 0; i < stageNanos.length; i++) stageNanos[i] = new LongAdder();
+    }
+
+    void addStage(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()].add(nanos);
+    }
+
+    // Records a file once its results are available; nanos covers reading, extraction and scoring
+    void fileAnalyzed(String path, long nanos, int entityCount, long byteCount, boolean reused) {
+        files.increment();
+        entities.add(entityCount);
+        bytes.add(byteCount);
+        if (reused) reusedFiles.increment();
+
+        synchronized (slowest) {
+            if (slowest.size() < SLOWEST_FILES) {
+                slowest.add(new FileTiming(path, nanos, entityCount));
+            } else if (slowest.peek().nanos < nanos) {
+                slowest.poll();
+                slowest.add(new FileTiming(path, nanos, entityCount));
+            }
+        }
+    }
+
+    void printSummary() {
+        double wall = seconds(System.nanoTime() - started);
+        System.out.println("Run statistics:");
+        System.out.printf("  Wall time           %10.3f s%n", wall);
+        for (Stage stage : Stage.values()) {
+            System.out.printf("  %-19s %10.3f s%s%n", stage.label, stageSeconds(stage),
+                    stage == Stage.READ || stage == Stage.EXTRACTION || stage == Stage.SCORING
+                        ? "  (summed over threads)" : "");
+        }
+        System.out.printf("  Files               %10d  (%d reused, %.1f files/s)%n",
+                files.sum(), reusedFiles.sum(), perSecond(files.sum(), wall));
+        System.out.printf("  Entities            %10d  (%.1f entities/s)%n", entities.sum(), perSecond(entities.sum(), wall));
+        System.out.printf("  Bytes read          %10d  (%.1f KB/s)%n", bytes.sum(), perSecond(bytes.sum(), wall) / 1024);
+        System.out.printf("  Dictionary lookups  %10d  (%d skipped by the Bloom filter)%n",
+                dictionaryLookups.sum(), filteredLookups.sum());
+        System.out.printf("  Partial-match scans %10d  (%d trigram probes)%n", partialMatchScans.sum(), trigramProbes.sum());
+        System.out.printf("  Segmentation scans  %10d%n", segmentationScans.sum());
+        List<FileTiming> slowFiles = slowestFiles();
+        if (!slowFiles.isEmpty()) {
+            System.out.println("  Slowest files:");
+            for (FileTiming timing : slowFiles) {
+                System.out.printf("    %10.3f ms  %6d entities  %s%n", timing.nanos / 1e6, timing.entities, timing.path);
+            }
+        }
+    }
+
+    void writeJson(String filePath) throws IOException {
+        File parent = new File(filePath).getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        double wall = seconds(System.nanoTime() - started);
+
+        try (Writer out = new BufferedWriter(new FileWriter(filePath))) {
+            out.write("{\n");
+            out.write("  \"wallSeconds\": " + Json.number(wall) + ",\n");
+            out.write("  \"stageSeconds\": {");
+            Stage[] stages = Stage.values();
+            for (int i = 0; i < stages.length; i++) {
+                out.write((i == 0 ? "" : ",") + "\n    \"" + stages[i].jsonName + "\": " + Json.number(stageSeconds(stages[i])));
+            }
+            out.write("\n  },\n");
+            out.write("  \"files\": " + files.sum() + ",\n");
+            out.write("  \"reusedFiles\": " + reusedFiles.sum() + ",\n");
+            out.write("  \"entities\": " + entities.sum() + ",\n");
+            out.write("  \"bytes\": " + bytes.sum() + ",\n");
+            out.write("  \"filesPerSecond\": " + Json.number(perSecond(files.sum(), wall)) + ",\n");
+            out.write("  \"entitiesPerSecond\": " + Json.number(perSecond(entities.sum(), wall)) + ",\n");
+            out.write("  \"bytesPerSecond\": " + Json.number(perSecond(bytes.sum(), wall)) + ",\n");
+            out.write("  \"dictionaryLookups\": " + dictionaryLookups.sum() + ",\n");
+            out.write("  \"filteredLookups\": " + filteredLookups.sum() + ",\n");
+            out.write("  \"partialMatchScans\": " + partialMatchScans.sum() + ",\n");
+            out.write("  \"trigramProbes\": " + trigramProbes.sum() + ",\n");
+            out.write("  \"segmentationScans\": " + segmentationScans.sum() + ",\n");
+            out.write("  \"slowestFiles\": [");
+            List<FileTiming> slowFiles = slowestFiles();
+            for (int i = 0; i < slowFiles.size(); i++) {
+                FileTiming timing = slowFiles.get(i);
+                out.write((i == 0 ? "" : ",") + "\n    {\"path\": " + Json.string(timing.path)
+                        + ", \"milliseconds\": " + Json.number(timing.nanos / 1e6)
+                        + ", \"entities\": " + timing.entities + "}");
+            }
+            out.write(slowFiles.isEmpty() ? "]\n" : "\n  ]\n");
+            out.write("}\n");
+        }
+    }
+
+    // Slowest first
+    private List<FileTiming> slowestFiles() {
+        List<FileTiming> sorted;
+        synchronized (slowest) {
+            sorted = new ArrayList<>(slowest);
+        }
+        sorted.sort(Comparator.comparingLong((FileTiming t) -> t.nanos).reversed());
+        return sorted;
+    }
+
+    private double stageSeconds(Stage stage) {
+        return seconds(stageNanos[stage.ordinal()].sum());
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static double perSecond(long count, double seconds) {
+        return seconds > 0 ? count / seconds : 0.0;
+    }
+}
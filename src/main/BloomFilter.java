@@ -0,0 +1,90 @@
+package main;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Compact pre-check for set membership: no false negatives, about 1% false positives at
+// 12 bits per word. It is a blocked Bloom filter: the 5 bits of a word all fall into one
+// 64-bit block, so a lookup reads a single long instead of probing 5 scattered cache lines.
+// Words are hashed from String.hashCode(), which strings cache, so a word that is also looked
+// up in a HashSet is hashed only once. The hash is fixed by the language specification, so a
+// filter can be stored (see PackedDictionary) and read back by any JVM.
+final class BloomFilter {
+    private static final int BITS_PER_WORD = 12;
+    private static final int HASHES = 5;
+
+    private final long[] blocks;
+
+    BloomFilter(int expectedWords) {
+        this(new long[Math.max(1, (int) ((long) expectedWords * BITS_PER_WORD / Long.SIZE))]);
+    }
+
+    private BloomFilter(long[] blocks) {
+        this.blocks = blocks;
+    }
+
+    // A filter with the same words, to add more to
+    BloomFilter copy() {
+        return new BloomFilter(blocks.clone());
+    }
+
+    void add(String word) {
+        long hash = hash(word);
+        blocks[block(hash)] |= mask(hash);
+    }
+
+    // False when the word was certainly never added
+    boolean mightContain(String word) {
+        long hash = hash(word);
+        long mask = mask(hash);
+        return (blocks[block(hash)] & mask) == mask;
+    }
+
+    long sizeInBytes() {
+        return (long) blocks.length * Long.BYTES;
+    }
+
+    // Block count followed by the blocks
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(blocks.length);
+        for (long block : blocks) out.writeLong(block);
+    }
+
+    // Reads a filter written by write() at the given position of a big-endian buffer
+    static BloomFilter read(ByteBuffer buffer, int position) throws IOException {
+        int count = buffer.getInt(position);
+        if (count < 1 || (long) position + 4 + 8L * count > buffer.capacity()) {
+            throw new IOException("Corrupt Bloom filter");
+        }
+        long[] blocks = new long[count];
+        buffer.slice(position + 4, 8 * count).asLongBuffer().get(blocks);
+        return new BloomFilter(blocks);
+    }
+
+    // Spreads the 32-bit string hash over 64 bits (MurmurHash3 finalizer)
+    private static long hash(String word) {
+        long h = word.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // The high 32 bits pick the block, without a division
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * blocks.length) >>> 32);
+    }
+
+    // The low 30 bits pick the bits within the block, 6 bits each (a long shift only uses the
+    // low 6 bits of its distance)
+    private static long mask(long hash) {
+        long mask = 0;
+        for (int i = 0; i < HASHES; i++) {
+            mask |= 1L << (hash >>> (6 * i));
+        }
+        return mask;
+    }
+}
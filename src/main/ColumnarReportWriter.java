@@ -0,0 +1,159 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+// Compact columnar report (--format columnar) for tools that load whole columns at once. All
+// numbers are big-endian. Entity types and readability categories are stored as byte codes
+// into small dictionaries, and file paths once in the file table, which entities refer to by
+// index. Strings are a table of offsets (count + 1 longs) followed by the UTF-8 bytes.
+//
+//   int    magic "CSR1", int version 2
+//   int    type count, then each type name (DataOutput UTF)
+//   int    readability category count, then each category name (DataOutput UTF)
+//   int    file count F, int entity count E
+//   column files.path         strings, F
+//   column files.firstEntity  int[F + 1]; file f owns entities [firstEntity[f], firstEntity[f + 1])
+//   column files.average      double[F]
+//   column entities.file      int[E]
+//   column entities.name      strings, E
+//   column entities.type      byte[E]
+//   column entities.score     double[E]
+//   column entities.readability byte[E]
+//
+// Every column is preceded by its length in bytes (long), so a reader can skip to any column;
+// a strings column's length covers its offsets and its bytes. The report is written in one
+// pass: offsets, bytes and every other column are spooled to their own temporary files next
+// to the report, and concatenated when the run finishes.
+final class ColumnarReportWriter implements ReportSink {
+    static final String FILE_NAME = "Comprehensibility_Report.columns";
+    private static final int MAGIC = 0x43535231; // "CSR1"
+    private static final int VERSION = 2;
+
+    // One column being spooled to a temporary file
+    private static final class Column {
+        final File file;
+        final DataOutputStream out;
+
+        Column(File directory) throws IOException {
+            file = File.createTempFile("column", ".tmp", directory);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        }
+    }
+
+    private final File outputDir;
+    private final String fileName;
+    private final Column[] columns;
+    private final Column pathOffsets;
+    private final Column pathBytes;
+    private final Column firstEntity;
+    private final Column averages;
+    private final Column entityFile;
+    private final Column nameOffsets;
+    private final Column nameBytes;
+    private final Column types;
+    private final Column scores;
+    private final Column readability;
+    private long pathLength = 0;
+    private long nameLength = 0;
+    private int fileCount = 0;
+    private int entityCount = 0;
+
+    ColumnarReportWriter(String directory) throws IOException {
+        outputDir = new File(directory);
+        if (!outputDir.exists()) outputDir.mkdirs();
+        fileName = new File(outputDir, FILE_NAME).getPath();
+
+        columns = new Column[10];
+        try {
+            for (int c = 0; c < columns.length; c++) columns[c] = new Column(outputDir);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        pathOffsets = columns[0];
+        pathBytes = columns[1];
+        firstEntity = columns[2];
+        averages = columns[3];
+        entityFile = columns[4];
+        nameOffsets = columns[5];
+        nameBytes = columns[6];
+        types = columns[7];
+        scores = columns[8];
+        readability = columns[9];
+
+        pathOffsets.out.writeLong(0);
+        firstEntity.out.writeInt(0);
+        nameOffsets.out.writeLong(0);
+    }
+
+    @Override
+    public void writeFile(File file, EntityStore results) throws IOException {
+        pathLength += writeString(pathBytes, file.getPath());
+        pathOffsets.out.writeLong(pathLength);
+        averages.out.writeDouble(results.fileAverage(0));
+
+        for (int i = results.fileStart(0); i < results.fileEnd(0); i++) {
+            entityFile.out.writeInt(fileCount);
+            nameLength += writeString(nameBytes, results.name(i));
+            nameOffsets.out.writeLong(nameLength);
+            types.out.writeByte(results.typeCode(i));
+            scores.out.writeDouble(results.score(i));
+            readability.out.writeByte(results.readabilityCode(i));
+            entityCount++;
+        }
+        fileCount++;
+        firstEntity.out.writeInt(entityCount);
+    }
+
+    private static int writeString(Column column, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        column.out.write(bytes);
+        return bytes.length;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        for (Column column : columns) column.out.close();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(EntityStore.TYPES.length);
+            for (String type : EntityStore.TYPES) out.writeUTF(type);
+            out.writeInt(EntityStore.READABILITY.length);
+            for (String category : EntityStore.READABILITY) out.writeUTF(category);
+            out.writeInt(fileCount);
+            out.writeInt(entityCount);
+
+            // Columns in the documented order; a strings column is its offsets and its bytes
+            Column[][] order = {{pathOffsets, pathBytes}, {firstEntity}, {averages}, {entityFile},
+                                {nameOffsets, nameBytes}, {types}, {scores}, {readability}};
+            for (Column[] parts : order) {
+                long length = 0;
+                for (Column part : parts) length += part.file.length();
+                out.writeLong(length);
+                for (Column part : parts) Files.copy(part.file.toPath(), out);
+            }
+        }
+    }
+
+    @Override
+    public void announce() {
+        System.out.println("Columnar report generated: " + fileName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Column column : columns) {
+            if (column == null) continue;
+            column.out.close();
+            column.file.delete();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package main;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.text.DecimalFormatSymbols;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -9,54 +13,418 @@ import java.util.Scanner;
 public class ComprehensibilityScoreCalculator {
     // Variables to exclude from readability scoring (e.g., loop counters)
     private static final String[] EXCLUDED_VARIABLES = {"i", "j"};
-    private static final Set<String> BUILTIN_READABLES = new HashSet<>(Arrays.asList(
-        "id", "url", "api", "http", "ip", "sql", "xml", "json", "db", "cpu", "gpu","https",
-        "uid", "eid", "cid", "pid", "rid", "nid", "tid",
-        "msg", "desc","dest", "txt", "str", "val",
-        "cmd", "opt", "arg", "flag",
-        "pwd", "usr", "auth", "sess",
-        "req", "res", "resp", "conn",
-        "mem", "ram", "rom", "os", "fs",
-        "io", "ui", "ux", "dbg",
-        "svc", "cfg", "lib", "mod",
-        "img", "btn", "nav", "ctrl", "alt", "hdr", "tbl", "src",
-        // two‐letter prepositions:
-        "as", "at", "by", "in", "of", "on", "to", "up",
-        "is","are","was","were","am","for","with",
-        "tmp", "num", "max", "min", "len", "err", "val",
-        // Data structures
-        "list", "map", "set", "arr", "dict", "queue", "stack", "node", "elem",
-        // Time-related terms
-        "time", "date", "epoch", "timestamp", "delay", "interval",
-        // Security-related terms
-        "key", "token", "salt", "hash", "enc", "cert", "auth", "ssl", "rsa", "aes",
-        // Common variable terms
-        "temp",
-        // Common error handling terms
-        "err",
-        // Common database terms
-        "sql", "db"
-    ));
-
-    // Dictionary for scoring, loaded once when the program starts
-    private static final Set<String> LOCAL_DICTIONARY = loadDictionary("Dictionary.txt");
-
-    // Class to store metadata for each detected entity
-    private static class EntityInfo {
-        String entity;
-        String type;
-        double score;
-        String readability;
-
-        EntityInfo(String entity, String type, double score, String readability) {
-            this.entity = entity;
-            this.type = type;
-            this.score = score;
-            this.readability = readability;
-        }
+
+    private static final String DEFAULT_DICTIONARY = "Dictionary.txt";
+
+
+    // Number of worker threads used to extract and score files (1 = sequential)
+    static int threadCount = 1;
+    private static boolean threadCountGiven = false;
+
+    // Threads per pipeline stage and files in flight; 0 = --threads threads, 4 files per thread
+    static int readThreads = 0;
+    static int extractThreads = 0;
+    static int scoreThreads = 0;
+    static int queueSize = 0;
+
+    // Keep the dictionary loaded and answer analyze requests over local HTTP (--serve)
+    private static boolean serve = false;
+    private static int serverPort = ScoringServer.DEFAULT_PORT;
+    // File the server writes its request token to (--token-file); by default one per port
+    private static String tokenFile = null;
+
+    // Commit range whose added declarations are scored instead of whole files (--diff)
+    private static String diffRange = null;
+
+    // Sharded scans: this process analyzes shard shardIndex of shardCount (--shard K/N), runs
+    // localShards child processes and merges them (--shards N), or merges results (--merge)
+    private static int shardIndex = 0;
+    private static int shardCount = 0;
+    private static int localShards = 0;
+    private static final List<String> mergeInputs = new ArrayList<>();
+
+    // Keep analyzing the paths as their files change (--watch)
+    private static boolean watch = false;
+
+    // Estimate the average from a random sample: the share of files and of their entities that
+    // is scored (--sample, --sample-entities) and an optional time budget (--sample-time)
+    private static boolean sample = false;
+    private static double sampleFraction = 1.0;
+    private static double entitySampleFraction = 1.0;
+    private static double sampleSeconds = 0;
+    private static Long sampleSeed = null;
+
+    // Directory the reports are written to
+    static String outputDirectory = "Output";
+    // Report formats written by a run (--format)
+    static final Set<ReportSink.Format> reportFormats = EnumSet.of(ReportSink.Format.CSV);
+
+    // Entries kept in each score cache (--cache-size), applied when the dictionary is loaded
+    static int cacheSize = Scorer.DEFAULT_CACHE_SIZE;
+    private static final int CACHE_FILE_MAGIC = 0x43534331; // "CSC1"
+
+    // Optional file the score caches are loaded from and saved to between runs
+    private static String cacheFile = null;
+
+    // .gitignore-style patterns for files and directories the directory walk skips
+    private static boolean useDefaultExcludes = true;
+    private static final List<String> excludePatterns = new ArrayList<>();
+
+    // Results of the previous run, used to skip unchanged files in --incremental mode
+    private static final String MANIFEST_FILE_NAME = "Comprehensibility_Manifest.bin";
+    private static boolean incremental = false;
+    private static AnalysisManifest manifest = null;
+
+    // Use the per-kind regexes instead of the single-pass LexerExtractor (--regex-extractors)
+    static boolean useRegexExtractors = false;
+
+    // Stage timings and counters of this run, printed with --stats and exported with --stats-json
+    static AnalysisStats stats = new AnalysisStats();
+    private static boolean printStats = false;
+    private static String statsJsonFile = null;
+
+    // Also accept words made of dictionary words run together, e.g. "maxretrycount" (--segment-words)
+    static boolean segmentWords = false;
+
+    // Glossaries layered on top of the dictionary, lowest first (--glossary)
+    static final List<String> glossaryPaths = new ArrayList<>();
+
+    // Dictionary and score caches of this run, replaced once the dictionary is loaded
+    static Scorer scorer = new Scorer(TextDictionary.empty(), cacheSize, stats, false);
+
+    // Extracts the raw [name, type] entities of a single source file
+    interface EntityExtractor {
+        List<String[]> extract(String filePath) throws IOException;
     }
 
+    private static final String USAGE =
+        "Usage: java -jar ComprehensibilityScoreCalculator.jar [options] [path...]\n" +
+        "  Without paths the tool asks for a language and a path interactively.\n" +
+        "  --lang LIST          Comma separated languages: java,cs,py,js,cpp (default: all)\n" +
+        "  --all-languages      Analyze every supported language in a single pass\n" +
+        "  --output DIR         Directory for the reports (default: Output)\n" +
+        "  --format LIST        Comma separated report formats: csv, jsonl (gzip JSON Lines), columnar,\n" +
+        "                       rollup (summaries per language, entity type, module and directory) (default: csv)\n" +
+        "  --dictionary FILE    Dictionary file (default: Dictionary.txt)\n" +
+        "  --glossary FILE      Word list layered on top of the dictionary, \"!word\" withdraws a word (repeatable, later wins)\n" +
+        "  --threads N          Number of files analyzed in parallel (default: 1)\n" +
+        "  --read-threads N     Threads reading files (default: --threads)\n" +
+        "  --extract-threads N  Threads extracting declarations (default: --threads)\n" +
+        "  --score-threads N    Threads scoring declarations (default: --threads)\n" +
+        "  --queue-size N       Files in flight between the walk and the report writer (default: 4 per thread)\n" +
+        "  --cache-size N       Maximum cached identifier and word scores, 0 disables (default: 100000)\n" +
+        "  --cache-file FILE    Load the score cache from FILE and save it back after the run\n" +
+        "  --incremental        Only re-analyze files changed since the last run (manifest kept in the output directory)\n" +
+        "  --exclude PATTERN    Skip files/directories matching a .gitignore-style pattern (repeatable)\n" +
+        "  --exclude-from FILE  Read exclude patterns from a .gitignore-style file\n" +
+        "  --no-default-excludes  Also walk .git, node_modules, build and vendor directories\n" +
+        "  --segment-words      Score run-together words that split into dictionary words (\"filename\") as full matches\n" +
+        "  --regex-extractors   Extract declarations with the original per-kind regexes instead of the single-pass scanner\n" +
+        "  --stats              Print stage timings, throughput, dictionary work and the slowest files\n" +
+        "  --stats-json FILE    Write the same statistics as JSON\n" +
+        "  --serve              Run as a scoring server on 127.0.0.1 (see main.ScoringClient) for the files below\n" +
+        "                       the given directories (default: the working directory); --threads sets the\n" +
+        "                       request threads (default: one per CPU)\n" +
+        "  --port N             Port of the scoring server (default: " + ScoringServer.DEFAULT_PORT + ")\n" +
+        "  --token-file FILE    Where the server writes its request token (default: ~/.comprehensibility/server-PORT.token)\n" +
+        "  --diff RANGE         Score only declarations added in a git range (BASE..HEAD, BASE...HEAD or BASE),\n" +
+        "                       with each changed file's average at both ends; paths limit the diff\n" +
+        "  --shard K/N          Analyze only shard K (0-based) of N and write a partial result to the output directory\n" +
+        "  --merge PATH         Write the reports from the partial results of all shards (files or directories, repeatable)\n" +
+        "  --shards N           Run N shards as local child processes, then merge them\n" +
+        "  --watch              After the analysis, re-analyze files as they change and keep the reports current\n" +
+        "  --sample FRACTION    Estimate the average from a random share of the files in each language, with\n" +
+        "                       95% confidence intervals (writes Sample_Comprehensibility_Report.csv only)\n" +
+        "  --sample-entities FRACTION  Score only this share of the entities of each sampled file\n" +
+        "  --sample-time SECONDS  Stop sampling when the time is up\n" +
+        "  --sample-seed N      Seed of the random sample (default: random, printed)";
+
     public static void main(String[] args) {
+        List<String> paths = new ArrayList<>();
+        Set<Language> languages = EnumSet.noneOf(Language.class);
+        String dictionaryPath = DEFAULT_DICTIONARY;
+
+        for (int a = 0; a < args.length; a++) {
+            String arg = args[a];
+            if (!arg.startsWith("--")) {
+                paths.add(arg);
+            } else if (arg.equals("--all-languages")) {
+                languages.addAll(EnumSet.allOf(Language.class));
+            } else if (arg.equals("--incremental")) {
+                incremental = true;
+            } else if (arg.equals("--no-default-excludes")) {
+                useDefaultExcludes = false;
+            } else if (arg.equals("--regex-extractors")) {
+                useRegexExtractors = true;
+            } else if (arg.equals("--stats")) {
+                printStats = true;
+            } else if (arg.equals("--segment-words")) {
+                segmentWords = true;
+            } else if (arg.equals("--serve")) {
+                serve = true;
+            } else if (arg.equals("--watch")) {
+                watch = true;
+            } else if (arg.equals("--help")) {
+                System.out.println(USAGE);
+                return;
+            } else if (a + 1 >= args.length) {
+                System.err.println("Missing value for " + arg);
+                System.err.println(USAGE);
+                return;
+            } else if (arg.equals("--threads")) {
+                try {
+                    threadCount = Integer.parseInt(args[++a]);
+                } catch (NumberFormatException e) {
+                    threadCount = 0;
+                }
+                if (threadCount < 1) {
+                    System.err.println("--threads expects a positive number.");
+                    return;
+                }
+                threadCountGiven = true;
+            } else if (arg.equals("--read-threads") || arg.equals("--extract-threads")
+                    || arg.equals("--score-threads") || arg.equals("--queue-size")) {
+                int value;
+                try {
+                    value = Integer.parseInt(args[++a]);
+                } catch (NumberFormatException e) {
+                    value = 0;
+                }
+                if (value < 1) {
+                    System.err.println(arg + " expects a positive number.");
+                    return;
+                }
+                if (arg.equals("--read-threads")) readThreads = value;
+                else if (arg.equals("--extract-threads")) extractThreads = value;
+                else if (arg.equals("--score-threads")) scoreThreads = value;
+                else queueSize = value;
+            } else if (arg.equals("--port")) {
+                try {
+                    serverPort = Integer.parseInt(args[++a]);
+                } catch (NumberFormatException e) {
+                    serverPort = -1;
+                }
+                if (serverPort < 0 || serverPort > 65535) {
+                    System.err.println("--port expects a port number.");
+                    return;
+                }
+            } else if (arg.equals("--token-file")) {
+                tokenFile = args[++a];
+            } else if (arg.equals("--lang")) {
+                for (String name : args[++a].split(",")) {
+                    Language language = Language.fromName(name.trim());
+                    if (language == null) {
+                        System.err.println("Unsupported language: " + name);
+                        return;
+                    }
+                    languages.add(language);
+                }
+            } else if (arg.equals("--output")) {
+                outputDirectory = args[++a];
+            } else if (arg.equals("--format")) {
+                reportFormats.clear();
+                for (String name : args[++a].split(",")) {
+                    ReportSink.Format format = ReportSink.Format.fromName(name.trim());
+                    if (format == null) {
+                        System.err.println("Unsupported report format: " + name);
+                        return;
+                    }
+                    reportFormats.add(format);
+                }
+            } else if (arg.equals("--dictionary")) {
+                dictionaryPath = args[++a];
+            } else if (arg.equals("--glossary")) {
+                glossaryPaths.add(args[++a]);
+            } else if (arg.equals("--cache-size")) {
+                try {
+                    cacheSize = Integer.parseInt(args[++a]);
+                } catch (NumberFormatException e) {
+                    cacheSize = -1;
+                }
+                if (cacheSize < 0) {
+                    System.err.println("--cache-size expects a number >= 0.");
+                    return;
+                }
+            } else if (arg.equals("--cache-file")) {
+                cacheFile = args[++a];
+            } else if (arg.equals("--diff")) {
+                diffRange = args[++a];
+            } else if (arg.equals("--shard")) {
+                int[] spec = AnalysisShard.parseSpec(args[++a]);
+                if (spec == null) {
+                    System.err.println("--shard expects K/N with 0 <= K < N.");
+                    return;
+                }
+                shardIndex = spec[0];
+                shardCount = spec[1];
+            } else if (arg.equals("--shards")) {
+                try {
+                    localShards = Integer.parseInt(args[++a]);
+                } catch (NumberFormatException e) {
+                    localShards = 0;
+                }
+                if (localShards < 1) {
+                    System.err.println("--shards expects a positive number.");
+                    return;
+                }
+            } else if (arg.equals("--sample") || arg.equals("--sample-entities") || arg.equals("--sample-time")) {
+                double value;
+                try {
+                    value = Double.parseDouble(args[++a]);
+                } catch (NumberFormatException e) {
+                    value = Double.NaN;
+                }
+                boolean time = arg.equals("--sample-time");
+                if (!(value > 0) || (!time && value > 1) || Double.isInfinite(value)) {
+                    System.err.println(arg + (time ? " expects a positive number of seconds." : " expects a fraction in (0, 1]."));
+                    return;
+                }
+                if (arg.equals("--sample")) sampleFraction = value;
+                else if (arg.equals("--sample-entities")) entitySampleFraction = value;
+                else sampleSeconds = value;
+                sample = true;
+            } else if (arg.equals("--sample-seed")) {
+                try {
+                    sampleSeed = Long.parseLong(args[++a]);
+                } catch (NumberFormatException e) {
+                    System.err.println("--sample-seed expects a number.");
+                    return;
+                }
+            } else if (arg.equals("--merge")) {
+                mergeInputs.add(args[++a]);
+            } else if (arg.equals("--stats-json")) {
+                statsJsonFile = args[++a];
+            } else if (arg.equals("--exclude")) {
+                excludePatterns.add(args[++a]);
+            } else if (arg.equals("--exclude-from")) {
+                try {
+                    excludePatterns.addAll(SourceWalker.readPatterns(args[++a]));
+                } catch (IOException e) {
+                    System.err.println("Error reading exclude patterns: " + e.getMessage());
+                    return;
+                }
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println(USAGE);
+                return;
+            }
+        }
+
+        if (paths.isEmpty() && !languages.isEmpty() && diffRange == null) {
+            System.err.println("No path given for the selected languages.");
+            System.err.println(USAGE);
+            return;
+        }
+        if ((shardCount > 0 || localShards > 0) && (paths.isEmpty() || serve || diffRange != null)) {
+            System.err.println("--shard and --shards scan the given paths; they do not combine with --serve or --diff.");
+            System.err.println(USAGE);
+            return;
+        }
+
+        if (watch && (paths.isEmpty() || serve || diffRange != null || shardCount > 0 || localShards > 0
+                || !mergeInputs.isEmpty())) {
+            System.err.println("--watch watches the given paths; it does not combine with --serve, --diff or sharded scans.");
+            System.err.println(USAGE);
+            return;
+        }
+
+        if (sample && (paths.isEmpty() || serve || watch || diffRange != null || shardCount > 0 || localShards > 0
+                || !mergeInputs.isEmpty())) {
+            System.err.println("Sampling estimates the given paths; it does not combine with --serve, --watch, --diff or sharded scans.");
+            System.err.println(USAGE);
+            return;
+        }
+
+        if (!mergeInputs.isEmpty() && !paths.isEmpty()) {
+            System.err.println("--merge takes no paths; the shard results list the files.");
+            System.err.println(USAGE);
+            return;
+        }
+
+        // Merging and the local shard driver leave the analysis to the shard processes
+        if (!mergeInputs.isEmpty()) {
+            runMerge(mergeInputs);
+            return;
+        }
+        if (localShards > 0) {
+            runLocalShards(args, localShards);
+            return;
+        }
+
+        long dictionaryStart = System.nanoTime();
+        loadScoringDictionary(dictionaryPath);
+        stats.addStage(AnalysisStats.Stage.DICTIONARY_LOAD, System.nanoTime() - dictionaryStart);
+        if (cacheFile != null) loadScoreCache(cacheFile);
+        if (incremental) loadManifest();
+
+        if (serve) {
+            runServer(paths);
+            return;
+        }
+        if (watch) {
+            runWatch(paths, languages.isEmpty() ? EnumSet.allOf(Language.class) : languages);
+            return;
+        }
+        if (sample) {
+            runSampledAnalysis(paths, languages.isEmpty() ? EnumSet.allOf(Language.class) : languages);
+        } else if (diffRange != null) {
+            runDiffAnalysis(diffRange, paths, languages.isEmpty() ? EnumSet.allOf(Language.class) : languages);
+        } else if (!paths.isEmpty()) {
+            runAnalysis(paths, languages.isEmpty() ? EnumSet.allOf(Language.class) : languages);
+        } else {
+            runInteractive();
+        }
+        finishRun();
+    }
+
+    // Prints and saves what a run leaves behind: cache statistics, the score cache, the
+    // manifest and the run statistics
+    private static void finishRun() {
+        printCacheStatistics();
+        if (cacheFile != null) saveScoreCache(cacheFile);
+        // A sample sees only some files; saving would drop the others from the manifest
+        if (manifest != null && !sample) saveManifest();
+        if (printStats) stats.printSummary();
+        if (statsJsonFile != null) {
+            try {
+                stats.writeJson(statsJsonFile);
+            } catch (IOException e) {
+                System.err.println("Error writing statistics: " + e.getMessage());
+            }
+        }
+    }
+
+    // Serves the loaded scorer for the files below the given directories until the process is
+    // stopped; the score cache is saved on exit
+    private static void runServer(List<String> paths) {
+        List<Path> roots = new ArrayList<>();
+        for (String path : paths.isEmpty() ? Collections.singletonList(".") : paths) {
+            if (!new File(path).isDirectory()) {
+                System.err.println("--serve expects directories: " + path);
+                return;
+            }
+            roots.add(Paths.get(path));
+        }
+        Path token = tokenFile != null ? Paths.get(tokenFile) : ScoringServer.defaultTokenFile(serverPort);
+
+        int threads = threadCountGiven ? threadCount : Runtime.getRuntime().availableProcessors();
+        ScoringServer server;
+        try {
+            server = new ScoringServer(scorer, serverPort, threads, roots, token);
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Error starting server: " + e.getMessage());
+            return;
+        }
+        if (cacheFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> saveScoreCache(cacheFile)));
+        }
+        System.out.println("Scoring server listening on http://127.0.0.1:" + server.port() + "/analyze");
+        System.out.println("Request token written to " + token);
+    }
+
+    // Asks for a language and a path on the console and runs that language's analysis
+    private static void runInteractive() {
         Scanner scanner = new Scanner(System.in);
 
         System.out.println("Select the language to analyze:");
@@ -95,472 +463,928 @@ public class ComprehensibilityScoreCalculator {
         }
     }
 
-    // ========== JAVA ANALYSIS ==========
-
-    private static void runJavaAnalysis(String path) {
-        try {
-            List<File> javaFiles = getFilesOrSingle(path, ".java");
+    // ========== SOURCE TREE ANALYSIS ==========
 
-            if (javaFiles.isEmpty()) {
-                System.out.println("No valid Java files found.");
-                return;
-            }
-            // Store per-file entity data
-            Map<File, List<EntityInfo>> fileEntityMap = new LinkedHashMap<>();
+    // Walks every path once and routes each file to the extractor of its language, so a
+    // polyglot repository is covered by a single run and a single dictionary load. Files are
+    // analyzed as the walk finds them instead of after the whole tree has been listed.
+    static void runAnalysis(List<String> paths, Set<Language> languages) {
+        analyzePaths(sourceWalker(languages), paths, languages, null);
+    }
 
-            for (File file : javaFiles) {
-                List<EntityInfo> entityList = new ArrayList<>();
-                List<String[]> entities = extractEntities(file.getAbsolutePath());
-                calculateComprehensibilityScoreUnified(entities, entityList);
+    // Walker for the files of the languages, honoring the exclude options
+    private static SourceWalker sourceWalker(Set<Language> languages) {
+        List<String> extensions = new ArrayList<>();
+        for (Language language : languages) {
+            extensions.addAll(Arrays.asList(language.extensions));
+        }
+        List<String> excludes = new ArrayList<>();
+        if (useDefaultExcludes) excludes.addAll(SourceWalker.DEFAULT_EXCLUDES);
+        excludes.addAll(excludePatterns);
+        return new SourceWalker(extensions, excludes);
+    }
 
-                fileEntityMap.put(file, entityList);
+    // Analyzes the files of the paths into the reports; each file's results are also put into
+    // retained (by path, in report order) unless it is null
+    private static void analyzePaths(SourceWalker walker, List<String> paths, Set<Language> languages,
+                                     Map<String, EntityStore> retained) {
+        try (AnalysisRun run = new AnalysisRun(retained)) {
+            // Walk time excludes the time spent analyzing the files the walk hands over
+            long walkStart = System.nanoTime();
+            long[] handlerNanos = {0};
+            for (String path : paths) {
+                walker.walk(path, file -> {
+                    long start = System.nanoTime();
+                    run.submit(file, languageOf(file.getName(), languages));
+                    handlerNanos[0] += System.nanoTime() - start;
+                });
             }
-            // Generate two reports
-            writeDetailedCSV(fileEntityMap, "Java");
-            writeSummaryCSV(fileEntityMap, "Java");
+            stats.addStage(AnalysisStats.Stage.WALK, System.nanoTime() - walkStart - handlerNanos[0]);
 
+            if (!run.finish()) {
+                if (languages.size() == 1) {
+                    System.out.println("No valid " + languages.iterator().next().displayName + " files found.");
+                } else {
+                    System.out.println("No valid source files found.");
+                }
+            }
         } catch (IOException e) {
             System.err.println("Error: " + e.getMessage());
         }
     }
 
-    // Uses regex patterns to extract entities from Java files (imports removed)
-    private static List<String[]> extractEntities(String filePath) throws IOException {
-        List<String[]> entities = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String line;
-
-      
-        Pattern packagePattern = Pattern.compile("^\\s*package\\s+([a-zA-Z0-9_.]+);?");
-        Pattern classPattern = Pattern.compile("\\bclass\\s+(\\w+)");
-        Pattern methodPattern = Pattern.compile("(public|private|protected|static|final|void)?\\s+\\w+\\s+(\\w+)\\s*\\(");
-        Pattern variablePattern = Pattern.compile("^(?!\\s*(class|package)).*?\\b(\\w+)\\s+(\\w+)\\s*(=\\s*.*)?;");
-
-        while ((line = reader.readLine()) != null) {
-            // Detect package (kept)
-            Matcher pkgMatcher = packagePattern.matcher(line);
-            if (pkgMatcher.find()) {
-                String[] parts = pkgMatcher.group(1).split("\\.");
-                String pkg = parts[parts.length - 1];
-                if (!isExcludedVariable(pkg)) {
-                    entities.add(new String[]{pkg, "Package"});
-                }
-            }
+    // ========== Sharded Scans ==========
 
-            // Detect class
-            Matcher classMatcher = classPattern.matcher(line);
-            if (classMatcher.find()) {
-                entities.add(new String[]{classMatcher.group(1), "Class"});
+    // Writes the detailed and summary reports from the partial results of a sharded scan, in
+    // the order shard 0 walked the files, streaming the results from all shards; see AnalysisShard
+    private static void runMerge(List<String> inputs) {
+        AnalysisShard[] shards = null;
+        try {
+            shards = AnalysisShard.openAll(inputs);
+            if (shards[0].isEmpty()) {
+                System.out.println("No valid source files found.");
+                return;
+            }
+            int merged;
+            // The reports are written as the results stream in; a merge that fails part way
+            // leaves them incomplete
+            try (ReportSink report = openReports(outputDirectory)) {
+                merged = AnalysisShard.merge(shards, report);
+                report.finish();
+                report.announce();
             }
+            System.out.printf("Merged %d files from %d shards%n", merged, shards.length);
+        } catch (IOException e) {
+            System.err.println("Error merging shards: " + e.getMessage());
+        } finally {
+            if (shards != null) AnalysisShard.closeAll(shards);
+        }
+    }
 
-            // Detect methods
-            Matcher methodMatcher = methodPattern.matcher(line);
-            while (methodMatcher.find()) {
-                String methodName = methodMatcher.group(2);
-                if (!isExcludedVariable(methodName)) {
-                    entities.add(new String[]{methodName, "Method"});
+    // Options the driver handles itself instead of passing them on to every child
+    private static final Set<String> DRIVER_OPTIONS = new HashSet<>(Arrays.asList(
+        "--shards", "--output", "--cache-file", "--stats-json"));
+
+    // Runs the scan as `count` shards in child JVMs with the same class path and options, each
+    // writing its partial result to the "shards" directory below the output directory, and
+    // merges them once all have finished. Exercises the same path as shards on separate
+    // machines whose results are copied together.
+    private static void runLocalShards(String[] args, int count) {
+        File shardDirectory = new File(outputDirectory, "shards");
+        if (!shardDirectory.exists()) shardDirectory.mkdirs();
+        // Results of an earlier run must not stand in for a shard that fails
+        File[] stale = shardDirectory.listFiles(AnalysisShard::isShardFile);
+        if (stale != null) {
+            for (File file : stale) file.delete();
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ComprehensibilityScoreCalculator.class.getName());
+        for (int a = 0; a < args.length; a++) {
+            if (DRIVER_OPTIONS.contains(args[a])) a++;
+            else command.add(args[a]);
+        }
+        command.add("--output");
+        command.add(shardDirectory.getPath());
+        command.add("--shard");
+
+        List<Process> children = new ArrayList<>();
+        try {
+            for (int k = 0; k < count; k++) {
+                List<String> shardCommand = new ArrayList<>(command);
+                shardCommand.add(k + "/" + count);
+                children.add(new ProcessBuilder(shardCommand).inheritIO().start());
+            }
+            for (int k = 0; k < count; k++) {
+                int exitCode = children.get(k).waitFor();
+                if (exitCode != 0) {
+                    System.err.println("Error: shard " + k + " failed (exit code " + exitCode + ")");
+                    return;
                 }
             }
+        } catch (IOException e) {
+            System.err.println("Error starting shard: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            for (Process child : children) child.destroy();
+        }
+        runMerge(Collections.singletonList(shardDirectory.getPath()));
+    }
 
-            // Detect variables
-            Matcher varMatcher = variablePattern.matcher(line);
-            while (varMatcher.find()) {
-                String variableName = varMatcher.group(3);
-                if (!isExcludedVariable(variableName)) {
-                    entities.add(new String[]{variableName, "Variable"});
+    // ========== Watch Mode ==========
+
+    // Analyzes the paths, then keeps every file's results in memory and waits for changes (see
+    // SourceWatcher). Each batch of changed files is re-analyzed on its own, the reports are
+    // rewritten from memory, and every file whose results moved is printed with its previous
+    // average. Runs until the process is stopped; the cache and manifest are saved on exit.
+    private static void runWatch(List<String> paths, Set<Language> languages) {
+        SourceWalker walker = sourceWalker(languages);
+        // Report order: the walk order, followed by files in the order they appeared
+        Map<String, EntityStore> results = new LinkedHashMap<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(ComprehensibilityScoreCalculator::finishRun));
+
+        // Registered before the walk, so files changed while it runs are analyzed again
+        try (SourceWatcher watcher = new SourceWatcher(walker, paths)) {
+            analyzePaths(walker, paths, languages, results);
+            System.out.printf("Watching %d %s for changes (Ctrl+C to stop)%n",
+                    results.size(), results.size() == 1 ? "file" : "files");
+
+            while (true) {
+                SourceWatcher.Changes changes = watcher.awaitChanges();
+                long start = System.nanoTime();
+
+                Set<Path> changed = new LinkedHashSet<>(changes.files);
+                for (String path : results.keySet()) {
+                    Path file = Paths.get(path);
+                    for (Path directory : changes.removedDirectories) {
+                        if (file.startsWith(directory)) changed.add(file);
+                    }
+                }
+                if (changes.overflow) {
+                    // Events were lost: every known and every walked file may have changed
+                    for (String path : results.keySet()) changed.add(Paths.get(path));
+                    for (String path : paths) walker.walk(path, file -> changed.add(file.toPath()));
                 }
+
+                double before = average(results);
+                int updated = 0;
+                for (Path file : changed) {
+                    if (updateFile(file.toFile(), languages, results)) updated++;
+                }
+                if (updated == 0) continue;
+
+                try (ReportSink report = openReports(outputDirectory)) {
+                    for (Map.Entry<String, EntityStore> entry : results.entrySet()) {
+                        report.writeFile(new File(entry.getKey()), entry.getValue());
+                    }
+                    report.finish();
+                }
+                System.out.printf("Average Comprehensibility Score: %.2f -> %.2f (%d %s updated in %.1f ms)%n",
+                        before, average(results), updated, updated == 1 ? "file" : "files",
+                        (System.nanoTime() - start) / 1e6);
             }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        reader.close();
-        return entities;
     }
 
-    // ========== C#  ANALYSIS ==========
+    // Re-analyzes a changed path and prints how its average moved; false when the file is
+    // gone and unknown, or its results did not change (e.g. a save without edits)
+    private static boolean updateFile(File file, Set<Language> languages, Map<String, EntityStore> results) {
+        String path = file.getPath();
+        EntityStore previous = results.get(path);
+        if (!file.isFile()) {
+            if (previous == null) return false;
+            results.remove(path);
+            System.out.printf("  %s: removed (was %.2f)%n", path, previous.fileAverage(0));
+            return true;
+        }
 
-    private static void runCSharpAnalysis(String path) {
+        long start = System.nanoTime();
+        EntityStore current;
         try {
-            List<File> csFiles = getFilesOrSingle(path, ".cs");
+            current = analyzeFile(new FileTask(file, languageOf(file.getName(), languages)));
+        } catch (IOException e) {
+            System.err.println("Error analyzing " + path + ": " + e.getMessage());
+            return false;
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        if (previous != null && sameResults(previous, current)) return false;
+
+        // Replacing keeps the file's place in the reports
+        results.put(path, current);
+        int entityCount = current.fileEnd(0) - current.fileStart(0);
+        if (previous == null) {
+            System.out.printf("  %s: new, %.2f (%d entities, %.1f ms)%n",
+                    path, current.fileAverage(0), entityCount, millis);
+        } else {
+            System.out.printf("  %s: %.2f -> %.2f (%+.2f, %d entities, %.1f ms)%n", path, previous.fileAverage(0),
+                    current.fileAverage(0), current.fileAverage(0) - previous.fileAverage(0), entityCount, millis);
+        }
+        return true;
+    }
 
-            if (csFiles.isEmpty()) {
-                System.out.println("No valid C# files found.");
-                return;
+    // True when both single-file stores hold the same entities with the same scores
+    private static boolean sameResults(EntityStore a, EntityStore b) {
+        int count = a.fileEnd(0) - a.fileStart(0);
+        if (count != b.fileEnd(0) - b.fileStart(0)) return false;
+        for (int i = 0; i < count; i++) {
+            int x = a.fileStart(0) + i;
+            int y = b.fileStart(0) + i;
+            if (!a.name(x).equals(b.name(y)) || a.typeCode(x) != b.typeCode(y) || a.score(x) != b.score(y)) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            Map<File, List<EntityInfo>> fileEntityMap = new LinkedHashMap<>();
+    // Average of the file averages, as the reports compute it
+    private static double average(Map<String, EntityStore> results) {
+        double total = 0.0;
+        for (EntityStore store : results.values()) total += store.fileAverage(0);
+        return results.isEmpty() ? 0.0 : total / results.size();
+    }
+
+    // ========== Sampling Mode ==========
+
+    // A file of the sample and its place in the sampling order
+    private static final class SampledFile {
+        final File file;
+        final int stratum;
+        final double position;
+
+        SampledFile(File file, int stratum, double position) {
+            this.file = file;
+            this.stratum = stratum;
+            this.position = position;
+        }
+    }
 
-            for (File file : csFiles) {
-                List<EntityInfo> entityList = new ArrayList<>();
-                List<String[]> entities = extractCSharpEntities(file.getAbsolutePath());
-                calculateComprehensibilityScoreUnified(entities, entityList);
+    // Estimates the average score from a stratified random sample (see SampleEstimate). The
+    // walk only lists the files; reading, extraction and scoring, which dominate a run, are
+    // limited to the sample, so the time grows with the sample rather than the tree. Files are
+    // taken in an order that keeps every language at its share of the files sampled so far,
+    // after two files of each language, so a run stopped by --sample-time still has a
+    // proportional sample. No other reports are written.
+    private static void runSampledAnalysis(List<String> paths, Set<Language> languages) {
+        long start = System.nanoTime();
+        SourceWalker walker = sourceWalker(languages);
+        Map<Language, List<File>> files = new EnumMap<>(Language.class);
+        try {
+            for (String path : paths) {
+                walker.walk(path, file -> files.computeIfAbsent(languageOf(file.getName(), languages),
+                                                                l -> new ArrayList<>()).add(file));
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        stats.addStage(AnalysisStats.Stage.WALK, System.nanoTime() - start);
+        if (files.isEmpty()) {
+            System.out.println("No valid source files found.");
+            return;
+        }
 
-                fileEntityMap.put(file, entityList);
+        long seed = sampleSeed != null ? sampleSeed : new Random().nextLong();
+        System.out.println("Sample seed: " + seed);
+        Random random = new Random(seed);
+
+        List<Language> strata = new ArrayList<>(files.keySet());
+        String[] names = new String[strata.size()];
+        long[] population = new long[strata.size()];
+        int[] quota = new int[strata.size()];
+        List<SampledFile> order = new ArrayList<>();
+        for (int h = 0; h < strata.size(); h++) {
+            List<File> stratum = files.get(strata.get(h));
+            names[h] = strata.get(h).displayName;
+            population[h] = stratum.size();
+            quota[h] = (int) Math.min(stratum.size(), Math.max(2, Math.round(sampleFraction * stratum.size())));
+            // A random permutation, interleaved with the other languages at a random offset
+            Collections.shuffle(stratum, random);
+            double offset = random.nextDouble();
+            for (int i = 0; i < quota[h]; i++) {
+                double position = i < 2 ? i - 2 + offset : (i + offset) / stratum.size();
+                order.add(new SampledFile(stratum.get(i), h, position));
             }
+        }
+        order.sort(Comparator.comparingDouble(f -> f.position));
+
+        SampleEstimate estimate = new SampleEstimate(names, population, entitySampleFraction < 1);
+        long deadline = sampleSeconds > 0 ? start + (long) (sampleSeconds * 1e9) : Long.MAX_VALUE;
+        for (SampledFile sampled : order) {
+            if (System.nanoTime() - deadline >= 0) break;
+            try {
+                EntityStore results = analyzeSample(new FileTask(sampled.file, strata.get(sampled.stratum)), random);
+                estimate.add(sampled.stratum, results.fileAverage(0), results.fileEnd(0) - results.fileStart(0));
+            } catch (IOException e) {
+                System.err.println("Error analyzing " + sampled.file.getPath() + ": " + e.getMessage());
+            }
+        }
 
-            writeDetailedCSV(fileEntityMap, "CSharp");
-            writeSummaryCSV(fileEntityMap, "CSharp");
+        estimate.print(System.nanoTime() - start);
+        try {
+            estimate.write(outputDirectory);
+        } catch (IOException e) {
+            System.err.println("Error writing sample report: " + e.getMessage());
+        }
+        System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------");
+    }
+
+    // Reads and extracts the file, then scores each entity with probability
+    // --sample-entities (at least one, when the file has any)
+    private static EntityStore analyzeSample(FileTask task, Random random) throws IOException {
+        readFile(task, false);
+        extractFile(task);
+        if (task.reused) return task.results;
+
+        long start = System.nanoTime();
+        List<String[]> entities = task.entities;
+        if (entitySampleFraction < 1 && !entities.isEmpty()) {
+            List<String[]> selected = new ArrayList<>();
+            for (String[] entity : entities) {
+                if (random.nextDouble() < entitySampleFraction) selected.add(entity);
+            }
+            if (selected.isEmpty()) selected.add(entities.get(random.nextInt(entities.size())));
+            entities = selected;
+        }
+        EntityStore results = new EntityStore(entities.size());
+        results.beginFile();
+        calculateComprehensibilityScoreUnified(entities, results);
+        stats.addStage(AnalysisStats.Stage.SCORING, System.nanoTime() - start);
+        return results;
+    }
 
+    // Scores the declarations a commit range adds; see GitDiffAnalysis
+    private static void runDiffAnalysis(String range, List<String> paths, Set<Language> languages) {
+        try {
+            new GitDiffAnalysis(scorer, languages).run(range, paths, outputDirectory);
         } catch (IOException e) {
             System.err.println("Error: " + e.getMessage());
         }
     }
 
- 
-    private static List<String[]> extractCSharpEntities(String filePath) throws IOException {
+    private static Language languageOf(String fileName, Set<Language> languages) {
+        for (Language language : languages) {
+            if (language.matches(fileName)) return language;
+        }
+        return null;
+    }
+
+    // ========== JAVA ANALYSIS ==========
+
+    private static void runJavaAnalysis(String path) {
+        runAnalysis(Collections.singletonList(path), EnumSet.of(Language.JAVA));
+    }
+
+    private static final Pattern JAVA_PACKAGE_PATTERN = Pattern.compile("^\\s*package\\s+([a-zA-Z0-9_.]+);?");
+    private static final Pattern JAVA_CLASS_PATTERN = Pattern.compile("\\bclass\\s+(\\w+)");
+    private static final Pattern JAVA_METHOD_PATTERN = Pattern.compile("(public|private|protected|static|final|void)?\\s+\\w+\\s+(\\w+)\\s*\\(");
+    private static final Pattern JAVA_VARIABLE_PATTERN = Pattern.compile("^(?!\\s*(class|package)).*?\\b(\\w+)\\s+(\\w+)\\s*(=\\s*.*)?;");
+
+    // Uses regex patterns to extract entities from Java files (imports removed)
+    static List<String[]> extractEntities(String filePath) throws IOException {
         List<String[]> entities = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String line;
-
-        // Namespace → Package (kept)
-        Pattern namespacePattern = Pattern.compile("^\\s*namespace\\s+([A-Za-z0-9_.]+)");
-
-        // Class declarations
-        Pattern classPattern = Pattern.compile("\\bclass\\s+(\\w+)");
-
-        // Method / Constructor / Operator
-        Pattern methodPattern = Pattern.compile(
-            "\\b(?:public|private|protected|internal|static|virtual|override|async|unsafe|sealed|extern)?\\s*" +
-            "(?:[A-Za-z_][A-Za-z0-9_<>,\\s]*?)\\s+" +
-            "(~?\\w+)\\s*\\("
-        );
-
-        // Variable / Field declarations
-        Pattern variablePattern = Pattern.compile(
-          "^\\s*(?:public|private|protected|internal|static|readonly|volatile|const)?\\s+"
-        + "(?:bool|byte|char|decimal|double|float|int|long|object|string|var|dynamic|[A-Za-z_][A-Za-z0-9_<>,]*)\\s+"
-        + "([A-Za-z_][A-Za-z0-9_]*)\\b"
-        + "(?:\\s*(?:=|;))"
-        );
-
-        while ((line = reader.readLine()) != null) {
-            Matcher m;
-
-            // NAMESPACE → Package
-            m = namespacePattern.matcher(line);
-            while (m.find()) {
-                String pkg = m.group(1);
-                if (!isExcludedVariable(pkg)) {
-                    entities.add(new String[]{ pkg, "Package" });
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                // Detect package (kept)
+                Matcher pkgMatcher = JAVA_PACKAGE_PATTERN.matcher(line);
+                if (pkgMatcher.find()) {
+                    String[] parts = pkgMatcher.group(1).split("\\.");
+                    // "package ." has no segments at all
+                    String pkg = parts.length > 0 ? parts[parts.length - 1] : null;
+                    if (pkg != null && !isExcludedVariable(pkg)) {
+                        entities.add(new String[]{pkg, "Package"});
+                    }
                 }
-            }
 
-            // CLASS
-            m = classPattern.matcher(line);
-            while (m.find()) {
-                String cls = m.group(1);
-                if (!isExcludedVariable(cls)) {
-                    entities.add(new String[]{ cls, "Class" });
+                // Detect class
+                Matcher classMatcher = JAVA_CLASS_PATTERN.matcher(line);
+                if (classMatcher.find()) {
+                    entities.add(new String[]{classMatcher.group(1), "Class"});
                 }
-            }
 
-            // METHOD / CONSTRUCTOR / OPERATOR
-            m = methodPattern.matcher(line);
-            while (m.find()) {
-                String methodName = m.group(1);
-                if (!isExcludedVariable(methodName)) {
-                    entities.add(new String[]{ methodName, "Method" });
+                // Detect methods
+                Matcher methodMatcher = JAVA_METHOD_PATTERN.matcher(line);
+                while (methodMatcher.find()) {
+                    String methodName = methodMatcher.group(2);
+                    if (!isExcludedVariable(methodName)) {
+                        entities.add(new String[]{methodName, "Method"});
+                    }
                 }
-            }
 
-            // VARIABLE / FIELD
-            m = variablePattern.matcher(line);
-            while (m.find()) {
-                String varName = m.group(1);
-                if (!isExcludedVariable(varName)) {
-                    entities.add(new String[]{ varName, "Variable" });
+                // Detect variables
+                Matcher varMatcher = JAVA_VARIABLE_PATTERN.matcher(line);
+                while (varMatcher.find()) {
+                    String variableName = varMatcher.group(3);
+                    if (!isExcludedVariable(variableName)) {
+                        entities.add(new String[]{variableName, "Variable"});
+                    }
                 }
             }
         }
-
-        reader.close();
         return entities;
     }
 
-    // ========== PYTHON  ANALYSIS ==========
+    // ========== C#  ANALYSIS ==========
 
-    private static void runPythonAnalysis(String path) {
-        try {
-            List<File> pyFiles = getFilesOrSingle(path, ".py");
-            if (pyFiles.isEmpty()) {
-                System.out.println("No valid Python files found.");
-                return;
-            }
+    private static void runCSharpAnalysis(String path) {
+        runAnalysis(Collections.singletonList(path), EnumSet.of(Language.CSHARP));
+    }
 
-            Map<File, List<EntityInfo>> fileEntityMap = new LinkedHashMap<>();
+ 
+    // Namespace → Package (kept)
+    private static final Pattern CSHARP_NAMESPACE_PATTERN = Pattern.compile("^\\s*namespace\\s+([A-Za-z0-9_.]+)");
+
+    // Class declarations
+    private static final Pattern CSHARP_CLASS_PATTERN = Pattern.compile("\\bclass\\s+(\\w+)");
+
+    // Method / Constructor / Operator
+    private static final Pattern CSHARP_METHOD_PATTERN = Pattern.compile(
+        "\\b(?:public|private|protected|internal|static|virtual|override|async|unsafe|sealed|extern)?\\s*" +
+        "(?:[A-Za-z_][A-Za-z0-9_<>,\\s]*?)\\s+" +
+        "(~?\\w+)\\s*\\("
+    );
+
+    // Variable / Field declarations
+    private static final Pattern CSHARP_VARIABLE_PATTERN = Pattern.compile(
+      "^\\s*(?:public|private|protected|internal|static|readonly|volatile|const)?\\s+"
+    + "(?:bool|byte|char|decimal|double|float|int|long|object|string|var|dynamic|[A-Za-z_][A-Za-z0-9_<>,]*)\\s+"
+    + "([A-Za-z_][A-Za-z0-9_]*)\\b"
+    + "(?:\\s*(?:=|;))"
+    );
+
+    static List<String[]> extractCSharpEntities(String filePath) throws IOException {
+        List<String[]> entities = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
 
-            for (File file : pyFiles) {
-                List<EntityInfo> entityList = new ArrayList<>();
-                List<String[]> entities = extractPythonEntities(file.getAbsolutePath());
-                calculateComprehensibilityScoreUnified(entities, entityList);
+            while ((line = reader.readLine()) != null) {
+                Matcher m;
+
+                // NAMESPACE → Package
+                m = CSHARP_NAMESPACE_PATTERN.matcher(line);
+                while (m.find()) {
+                    String pkg = m.group(1);
+                    if (!isExcludedVariable(pkg)) {
+                        entities.add(new String[]{ pkg, "Package" });
+                    }
+                }
 
-                fileEntityMap.put(file, entityList);
-            }
+                // CLASS
+                m = CSHARP_CLASS_PATTERN.matcher(line);
+                while (m.find()) {
+                    String cls = m.group(1);
+                    if (!isExcludedVariable(cls)) {
+                        entities.add(new String[]{ cls, "Class" });
+                    }
+                }
 
-            writeDetailedCSV(fileEntityMap, "Python");
-            writeSummaryCSV(fileEntityMap, "Python");
+                // METHOD / CONSTRUCTOR / OPERATOR
+                m = CSHARP_METHOD_PATTERN.matcher(line);
+                while (m.find()) {
+                    String methodName = m.group(1);
+                    if (!isExcludedVariable(methodName)) {
+                        entities.add(new String[]{ methodName, "Method" });
+                    }
+                }
 
-        } catch (IOException e) {
-            System.err.println("Error: " + e.getMessage());
+                // VARIABLE / FIELD
+                m = CSHARP_VARIABLE_PATTERN.matcher(line);
+                while (m.find()) {
+                    String varName = m.group(1);
+                    if (!isExcludedVariable(varName)) {
+                        entities.add(new String[]{ varName, "Variable" });
+                    }
+                }
+            }
         }
+        return entities;
+    }
+
+    // ========== PYTHON  ANALYSIS ==========
+
+    private static void runPythonAnalysis(String path) {
+        runAnalysis(Collections.singletonList(path), EnumSet.of(Language.PYTHON));
     }
 
     
-    private static List<String[]> extractPythonEntities(String filePath) throws IOException {
-        List<String[]> entities = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String line;
+    private static final Pattern PYTHON_CLASS_PATTERN = Pattern.compile("^\\s*class\\s+(\\w+)");
+    private static final Pattern PYTHON_METHOD_PATTERN = Pattern.compile("^\\s*def\\s+(\\w+)\\s*\\(");
+    private static final Pattern PYTHON_VARIABLE_PATTERN = Pattern.compile("^\\s*(\\w+)\\s*=\\s*");
 
-        Pattern classPattern = Pattern.compile("^\\s*class\\s+(\\w+)");
-        Pattern methodPattern = Pattern.compile("^\\s*def\\s+(\\w+)\\s*\\(");
-        Pattern variablePattern = Pattern.compile("^\\s*(\\w+)\\s*=\\s*");
+    static List<String[]> extractPythonEntities(String filePath) throws IOException {
+        List<String[]> entities = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
 
-        while ((line = reader.readLine()) != null) {
-            Matcher m;
+            while ((line = reader.readLine()) != null) {
+                Matcher m;
 
-            m = classPattern.matcher(line);
-            if (m.find()) {
-                entities.add(new String[]{m.group(1), "Class"});
-            }
+                m = PYTHON_CLASS_PATTERN.matcher(line);
+                if (m.find()) {
+                    entities.add(new String[]{m.group(1), "Class"});
+                }
 
-            m = methodPattern.matcher(line);
-            if (m.find()) {
-                entities.add(new String[]{m.group(1), "Method"});
-            }
+                m = PYTHON_METHOD_PATTERN.matcher(line);
+                if (m.find()) {
+                    entities.add(new String[]{m.group(1), "Method"});
+                }
 
-            m = variablePattern.matcher(line);
-            if (m.find()) {
-                String var = m.group(1);
-                if (!isExcludedVariable(var)) {
-                    entities.add(new String[]{var, "Variable"});
+                m = PYTHON_VARIABLE_PATTERN.matcher(line);
+                if (m.find()) {
+                    String var = m.group(1);
+                    if (!isExcludedVariable(var)) {
+                        entities.add(new String[]{var, "Variable"});
+                    }
                 }
             }
         }
-
-        reader.close();
         return entities;
     }
 
     // ========== JAVASCRIPT  ANALYSIS ==========
 
     private static void runJavaScriptAnalysis(String path) {
-        try {
-            List<File> jsFiles = getFilesOrSingle(path, ".js");
+        runAnalysis(Collections.singletonList(path), EnumSet.of(Language.JAVASCRIPT));
+    }
 
-            if (jsFiles.isEmpty()) {
-                System.out.println("No valid JavaScript files found.");
-                return;
-            }
+   
+    private static final Pattern JS_CLASS_PATTERN = Pattern.compile("\\bclass\\s+(\\w+)");
+    private static final Pattern JS_FUNCTION_PATTERN = Pattern.compile("\\bfunction\\s+(\\w+)\\s*\\(");
+    private static final Pattern JS_ARROW_FUNCTION_PATTERN = Pattern.compile("\\b(?:const|let|var)\\s+(\\w+)\\s*=\\s*\\([^)]*\\)\\s*=>");
+    private static final Pattern JS_VARIABLE_PATTERN = Pattern.compile("\\b(?:let|const|var)\\s+(\\w+)\\b");
+
+    static List<String[]> extractJavaScriptEntities(String filePath) throws IOException {
+        List<String[]> entities = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
 
-            Map<File, List<EntityInfo>> fileEntityMap = new LinkedHashMap<>();
+            while ((line = reader.readLine()) != null) {
+                Matcher m;
 
-            for (File file : jsFiles) {
-                List<EntityInfo> entityList = new ArrayList<>();
-                List<String[]> entities = extractJavaScriptEntities(file.getAbsolutePath());
-                calculateComprehensibilityScoreUnified(entities, entityList);
+                m = JS_CLASS_PATTERN.matcher(line);
+                while (m.find()) {
+                    String clsName = m.group(1);
+                    if (!isExcludedVariable(clsName)) {
+                        entities.add(new String[]{ clsName, "Class" });
+                    }
+                }
 
-                fileEntityMap.put(file, entityList);
-            }
+                m = JS_FUNCTION_PATTERN.matcher(line);
+                while (m.find()) {
+                    String fnName = m.group(1);
+                    if (!isExcludedVariable(fnName)) {
+                        entities.add(new String[]{ fnName, "Method" });
+                    }
+                }
 
-            writeDetailedCSV(fileEntityMap, "JavaScript");
-            writeSummaryCSV(fileEntityMap, "JavaScript");
+                m = JS_ARROW_FUNCTION_PATTERN.matcher(line);
+                while (m.find()) {
+                    String arrowFnName = m.group(1);
+                    if (!isExcludedVariable(arrowFnName)) {
+                        entities.add(new String[]{ arrowFnName, "Method" });
+                    }
+                }
 
-        } catch (IOException e) {
-            System.err.println("Error: " + e.getMessage());
+                m = JS_VARIABLE_PATTERN.matcher(line);
+                while (m.find()) {
+                    String varName = m.group(1);
+                    if (!isExcludedVariable(varName)) {
+                        entities.add(new String[]{ varName, "Variable" });
+                    }
+                }
+            }
         }
+        return entities;
     }
 
-   
-    private static List<String[]> extractJavaScriptEntities(String filePath) throws IOException {
+    // ========== C/C++ ANALYSIS ==========
+
+    private static void runCppAnalysis(String path) {
+        runAnalysis(Collections.singletonList(path), EnumSet.of(Language.CPP));
+    }
+
+    // C/C++ still keeps #include, as it's not "import"
+    private static final Pattern CPP_INCLUDE_PATTERN = Pattern.compile("^\\s*#include\\s+[<\"](\\w+)");
+    private static final Pattern CPP_DEFINE_PATTERN = Pattern.compile("^\\s*#define\\s+(\\w+)");
+    private static final Pattern CPP_STRUCT_PATTERN = Pattern.compile("\\bstruct\\s+(\\w+)");
+    private static final Pattern CPP_CLASS_PATTERN = Pattern.compile("\\bclass\\s+(\\w+)");
+    private static final Pattern CPP_ENUM_PATTERN = Pattern.compile("\\benum\\s+(\\w+)");
+    private static final Pattern CPP_TYPEDEF_PATTERN = Pattern.compile("\\btypedef\\s+\\w+\\s+(\\w+)");
+    private static final Pattern CPP_UNION_PATTERN = Pattern.compile("\\bunion\\s+(\\w+)");
+    private static final Pattern CPP_NAMESPACE_PATTERN = Pattern.compile("\\bnamespace\\s+(\\w+)");
+    private static final Pattern CPP_TEMPLATE_PATTERN = Pattern.compile("\\btemplate\\s*<[^>]+>\\s*(class|typename)?\\s*(\\w+)?");
+    private static final Pattern CPP_FUNCTION_PATTERN = Pattern.compile("\\b(\\w+)\\s+(\\w+)\\s*\\(");
+    private static final Pattern CPP_VARIABLE_PATTERN = Pattern.compile("\\b(\\w+)\\s+(\\w+)\\s*(=\\s*[^;]+)?;");
+
+    static List<String[]> extractCppEntities(String filePath) throws IOException {
         List<String[]> entities = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String line;
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
 
-        Pattern classPattern = Pattern.compile("\\bclass\\s+(\\w+)");
-        Pattern functionPattern = Pattern.compile("\\bfunction\\s+(\\w+)\\s*\\(");
-        Pattern arrowFunctionPattern = Pattern.compile("\\b(?:const|let|var)\\s+(\\w+)\\s*=\\s*\\([^)]*\\)\\s*=>");
-        Pattern variablePattern = Pattern.compile("\\b(?:let|const|var)\\s+(\\w+)\\b");
+            while ((line = reader.readLine()) != null) {
+                Matcher m;
 
-        while ((line = reader.readLine()) != null) {
-            Matcher m;
+                m = CPP_INCLUDE_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Include"});
 
-            m = classPattern.matcher(line);
-            while (m.find()) {
-                String clsName = m.group(1);
-                if (!isExcludedVariable(clsName)) {
-                    entities.add(new String[]{ clsName, "Class" });
-                }
-            }
+                m = CPP_DEFINE_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Macro"});
 
-            m = functionPattern.matcher(line);
-            while (m.find()) {
-                String fnName = m.group(1);
-                if (!isExcludedVariable(fnName)) {
-                    entities.add(new String[]{ fnName, "Method" });
-                }
-            }
+                m = CPP_STRUCT_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Struct"});
+
+                m = CPP_CLASS_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Class"});
+
+                m = CPP_ENUM_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Enum"});
+
+                m = CPP_TYPEDEF_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Typedef"});
+
+                m = CPP_UNION_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Union"});
+
+                m = CPP_NAMESPACE_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(1), "Namespace"});
+
+                m = CPP_TEMPLATE_PATTERN.matcher(line);
+                if (m.find()) entities.add(new String[]{m.group(2) != null ? m.group(2) : "T", "Template"});
 
-            m = arrowFunctionPattern.matcher(line);
-            while (m.find()) {
-                String arrowFnName = m.group(1);
-                if (!isExcludedVariable(arrowFnName)) {
-                    entities.add(new String[]{ arrowFnName, "Method" });
+                m = CPP_FUNCTION_PATTERN.matcher(line);
+                while (m.find()) {
+                    String func = m.group(2);
+                    if (!isExcludedVariable(func)) {
+                        entities.add(new String[]{func, "Function"});
+                    }
                 }
-            }
 
-            m = variablePattern.matcher(line);
-            while (m.find()) {
-                String varName = m.group(1);
-                if (!isExcludedVariable(varName)) {
-                    entities.add(new String[]{ varName, "Variable" });
+                m = CPP_VARIABLE_PATTERN.matcher(line);
+                while (m.find()) {
+                    String var = m.group(2);
+                    if (!isExcludedVariable(var)) {
+                        entities.add(new String[]{var, "Variable"});
+                    }
                 }
             }
         }
-
-        reader.close();
         return entities;
     }
 
-    // ========== C/C++ ANALYSIS ==========
+    // ========== Multi-file Analysis ==========
+
+    // One file on its way through the analysis: read, extracted, scored, then written
+    private static final class FileTask {
+        final File file;
+        final Language language;
+        final AnalysisStats.FileEvent event = new AnalysisStats.FileEvent();
+        // Time spent on this file in the stages, excluding time waiting in pipeline queues
+        long nanos;
+        CharSequence content;
+        List<String[]> entities;
+        EntityStore results;
+        boolean reused;
+        // For the manifest: size and mtime before the file was read, hash of the content analyzed
+        long size;
+        long modified;
+        byte[] hash;
+
+        FileTask(File file, Language language) {
+            this.file = file;
+            this.language = language;
+        }
+    }
 
-    private static void runCppAnalysis(String path) {
-        try {
-            List<File> cppFiles = getFilesOrSingle(path, ".cpp");
-            cppFiles.addAll(getFilesOrSingle(path, ".c"));
-            if (cppFiles.isEmpty()) {
-                System.out.println("No valid C/C++ files found.");
-                return;
+    // Extracts and scores the files handed to it. With more than one thread in any stage the
+    // files flow through an AnalysisPipeline (read -> extract -> score -> write), otherwise
+    // they are analyzed one by one on the calling thread. Results reach the report in
+    // submission order so reports stay deterministic. The report is opened with the first
+    // file, so a run without files leaves earlier reports untouched. A shard run (--shard)
+    // writes its partial result instead, and skips the files of the other shards.
+    private static class AnalysisRun implements Closeable {
+        private final AnalysisPipeline<FileTask> pipeline;
+        private final AnalysisShard.Writer shard;
+        private final Map<String, EntityStore> retained;
+        private ReportSink report;
+
+        AnalysisRun(Map<String, EntityStore> retained) throws IOException {
+            this.retained = retained;
+            int read = stageThreads(readThreads);
+            int extract = stageThreads(extractThreads);
+            int score = stageThreads(scoreThreads);
+            int widest = Math.max(read, Math.max(extract, score));
+            if (widest > 1) {
+                List<AnalysisPipeline.Stage<FileTask>> stages = Arrays.asList(
+                    task -> readFile(task, true),
+                    ComprehensibilityScoreCalculator::extractFile,
+                    ComprehensibilityScoreCalculator::scoreFile);
+                int capacity = queueSize > 0 ? queueSize : widest * 4;
+                pipeline = new AnalysisPipeline<>(stages, new int[]{read, extract, score},
+                                                  task -> writeFile(task.file, task.results), capacity);
+            } else {
+                pipeline = null;
             }
+            shard = shardCount > 0
+                ? new AnalysisShard.Writer(new File(outputDirectory), shardIndex, shardCount, dictionaryFingerprint())
+                : null;
+            report = shard;
+        }
 
-            Map<File, List<EntityInfo>> fileEntityMap = new LinkedHashMap<>();
-
-            for (File file : cppFiles) {
-                List<EntityInfo> entityList = new ArrayList<>();
-                List<String[]> entities = extractCppEntities(file.getAbsolutePath());
-                calculateComprehensibilityScoreUnified(entities, entityList);
-                fileEntityMap.put(file, entityList);
+        void submit(File file, Language language) throws IOException {
+            if (shard != null) {
+                if (!shard.accept(file)) return;
+            } else if (report == null) {
+                report = openReports(outputDirectory);
             }
 
-            writeDetailedCSV(fileEntityMap, "Cpp");
-            writeSummaryCSV(fileEntityMap, "Cpp");
-
-        } catch (IOException e) {
-            System.err.println("Error: " + e.getMessage());
+            FileTask task = new FileTask(file, language);
+            if (pipeline != null) {
+                pipeline.submit(task);
+                return;
+            }
+            writeFile(file, analyzeFile(task));
         }
-    }
-
-    private static List<String[]> extractCppEntities(String filePath) throws IOException {
-        List<String[]> entities = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String line;
 
-        // C/C++ still keeps #include, as it's not "import"
-        Pattern includePattern = Pattern.compile("^\\s*#include\\s+[<\"](\\w+)");
-        Pattern definePattern = Pattern.compile("^\\s*#define\\s+(\\w+)");
-        Pattern structPattern = Pattern.compile("\\bstruct\\s+(\\w+)");
-        Pattern classPattern = Pattern.compile("\\bclass\\s+(\\w+)");
-        Pattern enumPattern = Pattern.compile("\\benum\\s+(\\w+)");
-        Pattern typedefPattern = Pattern.compile("\\btypedef\\s+\\w+\\s+(\\w+)");
-        Pattern unionPattern = Pattern.compile("\\bunion\\s+(\\w+)");
-        Pattern namespacePattern = Pattern.compile("\\bnamespace\\s+(\\w+)");
-        Pattern templatePattern = Pattern.compile("\\btemplate\\s*<[^>]+>\\s*(class|typename)?\\s*(\\w+)?");
-        Pattern functionPattern = Pattern.compile("\\b(\\w+)\\s+(\\w+)\\s*\\(");
-        Pattern variablePattern = Pattern.compile("\\b(\\w+)\\s+(\\w+)\\s*(=\\s*[^;]+)?;");
+        // Writes the remaining results and the report totals; false when no file was submitted.
+        // A shard always writes its result, even an empty one, for the merge to find.
+        boolean finish() throws IOException {
+            if (report == null) return false;
+            if (pipeline != null) pipeline.finish();
+            long start = System.nanoTime();
+            report.finish();
+            stats.addStage(AnalysisStats.Stage.REPORT, System.nanoTime() - start);
+            report.announce();
+            return true;
+        }
 
-        while ((line = reader.readLine()) != null) {
-            Matcher m;
+        private void writeFile(File file, EntityStore results) throws IOException {
+            long start = System.nanoTime();
+            report.writeFile(file, results);
+            if (retained != null) retained.put(file.getPath(), results);
+            stats.addStage(AnalysisStats.Stage.REPORT, System.nanoTime() - start);
+        }
 
-            m = includePattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Include"});
+        @Override
+        public void close() throws IOException {
+            if (pipeline != null) pipeline.close();
+            if (report != null) report.close();
+        }
+    }
 
-            m = definePattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Macro"});
+    // Runs all stages for one file on the calling thread
+    private static EntityStore analyzeFile(FileTask task) throws IOException {
+        readFile(task, false);
+        extractFile(task);
+        scoreFile(task);
+        return task.results;
+    }
 
-            m = structPattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Struct"});
+    private static int stageThreads(int configured) {
+        return configured > 0 ? configured : threadCount;
+    }
 
-            m = classPattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Class"});
+    // Takes unchanged files from the manifest, otherwise reads the source for the scanner. A
+    // detached copy is made when the task moves on to another thread, since the read buffer
+    // belongs to this one. The regex extractors read the file themselves.
+    private static void readFile(FileTask task, boolean detach) throws IOException {
+        task.event.begin();
+        long start = System.nanoTime();
+
+        if (manifest != null) {
+            EntityStore previous = manifest.lookup(task.file);
+            if (previous != null) {
+                task.results = previous;
+                task.reused = true;
+            } else {
+                task.size = task.file.length();
+                task.modified = task.file.lastModified();
+            }
+        }
+        if (!task.reused && !useRegexExtractors) {
+            MessageDigest digest = manifest != null ? AnalysisManifest.newDigest() : null;
+            CharSequence content = SourceBuffer.forCurrentThread().read(task.file.getAbsolutePath(), digest);
+            task.content = detach ? content.toString() : content;
+            if (digest != null) task.hash = digest.digest();
+        } else if (!task.reused && manifest != null) {
+            // The regex extractors read the file themselves; a change after this read shows
+            // up as a hash mismatch in the next run
+            task.hash = AnalysisManifest.hash(task.file);
+        }
 
-            m = enumPattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Enum"});
+        long nanos = System.nanoTime() - start;
+        task.nanos += nanos;
+        stats.addStage(AnalysisStats.Stage.READ, nanos);
+    }
 
-            m = typedefPattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Typedef"});
+    private static void extractFile(FileTask task) throws IOException {
+        if (task.reused) return;
+        long start = System.nanoTime();
 
-            m = unionPattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Union"});
+        if (task.content != null) {
+            task.entities = LexerExtractor.extract(task.content, task.language);
+            task.content = null;
+        } else {
+            task.entities = task.language.regexExtractor.extract(task.file.getAbsolutePath());
+        }
 
-            m = namespacePattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(1), "Namespace"});
+        long nanos = System.nanoTime() - start;
+        task.nanos += nanos;
+        stats.addStage(AnalysisStats.Stage.EXTRACTION, nanos);
+    }
 
-            m = templatePattern.matcher(line);
-            if (m.find()) entities.add(new String[]{m.group(2) != null ? m.group(2) : "T", "Template"});
+    private static void scoreFile(FileTask task) throws IOException {
+        if (!task.reused) {
+            long start = System.nanoTime();
 
-            m = functionPattern.matcher(line);
-            while (m.find()) {
-                String func = m.group(2);
-                if (!isExcludedVariable(func)) {
-                    entities.add(new String[]{func, "Function"});
-                }
-            }
+            task.results = new EntityStore(task.entities.size());
+            task.results.beginFile();
+            calculateComprehensibilityScoreUnified(task.entities, task.results);
+            task.entities = null;
+            if (manifest != null) manifest.record(task.file, task.size, task.modified, task.hash, task.results);
 
-            m = variablePattern.matcher(line);
-            while (m.find()) {
-                String var = m.group(2);
-                if (!isExcludedVariable(var)) {
-                    entities.add(new String[]{var, "Variable"});
-                }
-            }
+            long nanos = System.nanoTime() - start;
+            task.nanos += nanos;
+            stats.addStage(AnalysisStats.Stage.SCORING, nanos);
         }
+        fileAnalyzed(task.event, task.file, task.nanos, task.results,
+                     task.reused ? 0 : task.file.length(), task.reused);
+    }
 
-        reader.close();
-        return entities;
+    private static void fileAnalyzed(AnalysisStats.FileEvent event, File file, long nanos,
+                                     EntityStore results, long bytes, boolean reused) {
+        int entityCount = results.fileEnd(0) - results.fileStart(0);
+        stats.fileAnalyzed(file.getPath(), nanos, entityCount, bytes, reused);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.entities = entityCount;
+            event.bytes = bytes;
+            event.reused = reused;
+            event.commit();
+        }
     }
 
-    // ========== File & Dictionary Utilities  ==========
+    // ========== Incremental Manifest ==========
 
-    private static List<File> getFilesOrSingle(String path, String ext) {
-        List<File> files = new ArrayList<>();
-        File target = new File(path);
-        if (target.isFile() && target.getName().endsWith(ext)) {
-            files.add(target);
-        } else if (target.isDirectory()) {
-            files = getFilesWithExtension(target, ext);
+    private static void loadManifest() {
+        // Each shard keeps its own manifest, so shards can share an output directory
+        String name = shardCount > 0
+            ? MANIFEST_FILE_NAME.replace(".bin", "_Shard_" + shardIndex + "_of_" + shardCount + ".bin")
+            : MANIFEST_FILE_NAME;
+        File file = new File(outputDirectory, name);
+        try {
+            manifest = AnalysisManifest.load(file, dictionaryFingerprint());
+        } catch (IOException e) {
+            System.err.println("Error loading manifest, analyzing all files: " + e.getMessage());
+            manifest = new AnalysisManifest(file, dictionaryFingerprint());
         }
-        return files;
     }
 
-    private static List<File> getFilesWithExtension(File dir, String ext) {
-        List<File> files = new ArrayList<>();
-        File[] items = dir.listFiles();
-        if (items != null) {
-            for (File file : items) {
-                if (file.isDirectory()) {
-                    files.addAll(getFilesWithExtension(file, ext));
-                } else if (file.getName().endsWith(ext)) {
-                    files.add(file);
-                }
-            }
+    private static void saveManifest() {
+        System.out.printf("Incremental: %d files reused, %d re-analyzed, %d removed%n",
+                manifest.reusedCount(), manifest.analyzedCount(), manifest.removedCount());
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            System.err.println("Error saving manifest: " + e.getMessage());
         }
-        return files;
     }
 
-    // Loads a dictionary file into a HashSet for lookup
-    private static Set<String> loadDictionary(String filePath) {
-        Set<String> dictionary = new HashSet<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                dictionary.add(line.trim().toLowerCase());
-            }
+    // ========== File & Dictionary Utilities  ==========
+
+    // Loads the scoring dictionary, either compiled (see DictionaryCompiler) or plain text,
+    // and layers the glossaries on top of it
+    static void loadScoringDictionary(String filePath) {
+        WordDictionary dictionary;
+        try {
+            dictionary = Scorer.openDictionary(filePath);
         } catch (IOException e) {
             System.err.println("Error loading dictionary: " + e.getMessage());
+            dictionary = TextDictionary.empty();
+        }
+        LayeredDictionary layered;
+        try {
+            layered = LayeredDictionary.load(dictionary, glossaryPaths);
+        } catch (IOException e) {
+            System.err.println("Error loading glossary: " + e.getMessage());
+            layered = LayeredDictionary.of(dictionary);
         }
-        return dictionary;
+        scorer = new Scorer(layered, cacheSize, stats, segmentWords);
     }
 
     // Helper to skip excluded variables like i, j
-    private static boolean isExcludedVariable(String variable) {
+    static boolean isExcludedVariable(String variable) {
         for (String excluded : EXCLUDED_VARIABLES) {
             if (excluded.equals(variable)) return true;
         }
@@ -569,146 +1393,250 @@ public class ComprehensibilityScoreCalculator {
 
     // ========== Scoring Logic ==========
 
-    private static double evaluateEntityScore(String entity, String type) {
-       
+    // The type does not influence the score; it is kept for the callers' convenience
+    static double evaluateEntityScore(String entity, String type) {
+        return scorer.scoreIdentifier(entity);
+    }
 
-        // For Package / Class / Method / Variable, use camelCase & punctuation split rules
-        String[] words = entity.split(
-            "(?<=[a-z])(?=[A-Z])" +
-            "|(?<=[A-Z])(?=[A-Z][a-z])" +
-            "|(?<=[a-z])(?=[0-9])" +
-            "|(?<=[0-9])(?=[A-Za-z])" +
-            "|[-_]"
-        );
+    static double evaluateWordScore(String word) {
+        return scorer.scoreWord(word);
+    }
 
-        double totalScore = 0.0;
-        int validCount = 0;
+    // ========== Score Cache ==========
 
-        for (String w : words) {
-            String lower = w.toLowerCase();
+    // Identifies the dictionary a persisted cache was computed with
+    private static long dictionaryFingerprint() {
+        return scorer.fingerprint();
+    }
 
-            if (lower.isEmpty() || lower.equals("_") || lower.matches("^\\d+$")) {
-                continue;
+    private static void loadScoreCache(String filePath) {
+        File file = new File(filePath);
+        if (!file.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != CACHE_FILE_MAGIC || in.readLong() != dictionaryFingerprint()) {
+                System.out.println("Score cache " + filePath + " was built with a different dictionary, starting cold.");
+                return;
             }
-
-            totalScore += evaluateWordScore(lower);
-            validCount++;
+            scorer.wordCache.load(in);
+            scorer.entityCache.load(in);
+        } catch (IOException e) {
+            System.err.println("Error loading score cache: " + e.getMessage());
         }
-
-        return validCount == 0 ? 0.0 : totalScore / validCount;
-    }
-
-    // Delegates to full or partial match scoring
-    private static double evaluateWordScore(String word) {
-        String lowerWord = word.toLowerCase();
-
-        // Built-in readable tokens
-        if (BUILTIN_READABLES.contains(lowerWord)) return 1.0;
-
-        // Existing dictionary checks
-        if (isFullMatch(word)) return 1.0;
-        return getPartialMatchScore(word);
     }
 
-    private static boolean isFullMatch(String word) {
-        return word.length() >= 3 && LOCAL_DICTIONARY.contains(word.toLowerCase());
+    private static void saveScoreCache(String filePath) {
+        if (!scorer.entityCache.isEnabled()) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(CACHE_FILE_MAGIC);
+            out.writeLong(dictionaryFingerprint());
+            scorer.wordCache.save(out);
+            scorer.entityCache.save(out);
+        } catch (IOException e) {
+            System.err.println("Error saving score cache: " + e.getMessage());
+        }
     }
 
-    private static double getPartialMatchScore(String word) {
-        String lowercaseWord = word.toLowerCase();
-        if (lowercaseWord.length() < 3) return 0.0;
-
-        for (String dictWord : LOCAL_DICTIONARY) {
-            if (dictWord.length() >= 3) {
-                for (int i = 0; i <= lowercaseWord.length() - 3; i++) {
-                    String substring = lowercaseWord.substring(i, i + 3);
-                    if (dictWord.contains(substring)) {
-                        return 0.5;
-                    }
-                }
-            }
-        }
-        return 0.0;
+    private static void printCacheStatistics() {
+        if (!scorer.entityCache.isEnabled()) return;
+        System.out.printf("Score cache: identifiers %d hits / %d misses, words %d hits / %d misses%n",
+                scorer.entityCache.hitCount(), scorer.entityCache.missCount(),
+                scorer.wordCache.hitCount(), scorer.wordCache.missCount());
     }
 
     // ========== Comprehensibility Score Calculator ==========
 
-    private static void calculateComprehensibilityScoreUnified(List<String[]> entities, List<EntityInfo> resultList) {
+    // Scores the entities into the current file of results; readability follows from the score
+    // (1 = Well Readable, >= 0.5 = Moderate Readable, otherwise Non Readable)
+    private static void calculateComprehensibilityScoreUnified(List<String[]> entities, EntityStore results) {
         for (String[] entityData : entities) {
             String entity = entityData[0];
             String type = entityData[1];
             double score = evaluateEntityScore(entity, type);
 
-            String readability;
-            if (score == 1) readability = "Well Readable";
-            else if (score >= 0.5) readability = "Moderate Readable";
-            else readability = "Non Readable";
-
-            resultList.add(new EntityInfo(entity, type, score, readability));
+            results.add(entity, type, score);
         }
     }
 
     // ========== CSV Generation CODE ==========
 
-    private static void writeDetailedCSV(Map<File, List<EntityInfo>> fileEntityMap, String language) {
-        File outputDir = new File("Output");
-        if (!outputDir.exists()) outputDir.mkdirs();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final char DECIMAL_SEPARATOR =
+        DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
 
-        String fileName = "Output/Detailed_Comprehensibility_Report.csv";
+    // ========== Report Sinks ==========
 
-        try (PrintWriter writer = new PrintWriter(fileName)) {
+    // Opens the reports of every selected format behind one sink
+    private static ReportSink openReports(String directory) throws IOException {
+        ReportSinks reports = new ReportSinks();
+        try {
+            for (ReportSink.Format format : reportFormats) {
+                switch (format) {
+                    case JSON_LINES:
+                        reports.sinks.add(new JsonLinesReportWriter(directory));
+                        break;
+                    case COLUMNAR:
+                        reports.sinks.add(new ColumnarReportWriter(directory));
+                        break;
+                    case ROLLUP:
+                        reports.sinks.add(new RollupReportWriter(directory));
+                        break;
+                    default:
+                        reports.sinks.add(new ReportWriter(directory));
+                }
+            }
+        } catch (IOException e) {
+            reports.close();
+            throw e;
+        }
+        return reports;
+    }
 
-            writer.println("Class Name with Path,Class Average,Entity Name,Entity Type,Comprehensibility Score,Comprehensibility Category");
+    // Hands every file to each report and prints the overall average with their locations
+    private static class ReportSinks implements ReportSink {
+        private final List<ReportSink> sinks = new ArrayList<>();
+        private double total = 0.0;
+        private int count = 0;
+
+        @Override
+        public void writeFile(File file, EntityStore results) throws IOException {
+            for (ReportSink sink : sinks) sink.writeFile(file, results);
+            total += results.fileAverage(0);
+            count++;
+        }
 
-            for (Map.Entry<File, List<EntityInfo>> entry : fileEntityMap.entrySet()) {
-                String filePath = entry.getKey().getPath();
-                List<EntityInfo> entities = entry.getValue();
+        double average() {
+            return count == 0 ? 0.0 : total / count;
+        }
 
-                double avgScore = entities.stream().mapToDouble(e -> e.score).average().orElse(0.0);
+        @Override
+        public void finish() throws IOException {
+            for (ReportSink sink : sinks) sink.finish();
+        }
 
-                writer.printf("%s,AVERAGE VALUE: %.2f,,,,%n", filePath, avgScore);
+        @Override
+        public void announce() {
+            for (ReportSink sink : sinks) sink.announce();
+            System.out.printf("Average Comprehensibility Score: %.2f%n", average());
+            System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------");
+        }
 
-                for (EntityInfo info : entities) {
-                    writer.printf(",,%s,%s,%.2f,%s%n",
-                            info.entity, info.type, info.score, info.readability);
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (ReportSink sink : sinks) {
+                try {
+                    sink.close();
+                } catch (IOException e) {
+                    if (failure == null) failure = e;
                 }
             }
-
-            System.out.println("Detailed CSV report generated: " + fileName);
-        } catch (IOException e) {
-            System.err.println("Error writing detailed CSV: " + e.getMessage());
+            if (failure != null) throw failure;
         }
     }
 
-    private static void writeSummaryCSV(Map<File, List<EntityInfo>> fileEntityMap, String language) {
-        File outputDir = new File("Output");
-        if (!outputDir.exists()) outputDir.mkdirs();
+    // Writes the detailed and summary CSVs row by row while files are scored, so memory
+    // use does not grow with the size of the project
+    private static class ReportWriter implements ReportSink {
+        private final String detailedFileName;
+        private final String summaryFileName;
+        private final Writer detailed;
+        private final Writer summary;
+        private final StringBuilder row = new StringBuilder(256);
+        private double total = 0.0;
+        private int count = 0;
+
+        ReportWriter(String directory) throws IOException {
+            File outputDir = new File(directory);
+            if (!outputDir.exists()) outputDir.mkdirs();
+
+            detailedFileName = new File(outputDir, "Detailed_Comprehensibility_Report.csv").getPath();
+            summaryFileName = new File(outputDir, "Summary_Comprehensibility_Report.csv").getPath();
+            detailed = new BufferedWriter(new FileWriter(detailedFileName), 1 << 16);
+            try {
+                summary = new BufferedWriter(new FileWriter(summaryFileName));
+            } catch (IOException e) {
+                detailed.close();
+                throw e;
+            }
 
-        String fileName = "Output/Summary_Comprehensibility_Report.csv";
+            detailed.write("Class Name with Path,Class Average,Entity Name,Entity Type,Comprehensibility Score,Comprehensibility Category");
+            detailed.write(LINE_SEPARATOR);
+            summary.write("Class Name with Path,Comprehensibility Score");
+            summary.write(LINE_SEPARATOR);
+        }
 
-        try (PrintWriter writer = new PrintWriter(fileName)) {
-            writer.println("Class Name with Path,Comprehensibility Score");
+        // Appends the detailed rows and the summary line of a single-file result store
+        @Override
+        public void writeFile(File file, EntityStore results) throws IOException {
+            String filePath = file.getPath();
+            double fileScore = results.fileAverage(0);
+
+            row.setLength(0);
+            row.append(filePath).append(",AVERAGE VALUE: ");
+            appendScore(row, fileScore);
+            row.append(",,,,").append(LINE_SEPARATOR);
+            detailed.append(row);
+
+            for (int i = results.fileStart(0); i < results.fileEnd(0); i++) {
+                row.setLength(0);
+                row.append(",,").append(results.name(i)).append(',').append(results.type(i)).append(',');
+                appendScore(row, results.score(i));
+                row.append(',').append(results.readability(i)).append(LINE_SEPARATOR);
+                detailed.append(row);
+            }
 
-            double total = 0.0;
-            int count = 0;
+            row.setLength(0);
+            row.append(filePath).append(',');
+            appendScore(row, fileScore);
+            row.append(LINE_SEPARATOR);
+            summary.append(row);
 
-            for (Map.Entry<File, List<EntityInfo>> entry : fileEntityMap.entrySet()) {
-                List<EntityInfo> entities = entry.getValue();
-                double fileScore = entities.stream().mapToDouble(e -> e.score).average().orElse(0.0);
-                writer.printf("%s,%.2f%n", entry.getKey().getPath(), fileScore);
-                total += fileScore;
-                count++;
-            }
+            total += fileScore;
+            count++;
+        }
 
+        // Writes the overall average
+        @Override
+        public void finish() throws IOException {
             double average = count == 0 ? 0.0 : total / count;
-            writer.printf("Average Comprehensibility Score,%.2f%n", average);
+            row.setLength(0);
+            row.append("Average Comprehensibility Score,");
+            appendScore(row, average);
+            row.append(LINE_SEPARATOR);
+            summary.append(row);
+            detailed.flush();
+            summary.flush();
+        }
 
-            System.out.println("Summary CSV report generated: " + fileName);
-            System.out.printf("Average Comprehensibility Score: %.2f%n", average);
-            System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------");
+        @Override
+        public void announce() {
+            System.out.println("Detailed CSV report generated: " + detailedFileName);
+            System.out.println("Summary CSV report generated: " + summaryFileName);
+        }
 
-        } catch (IOException e) {
-            System.err.println("Error writing summary CSV: " + e.getMessage());
+        @Override
+        public void close() throws IOException {
+            try {
+                detailed.close();
+            } finally {
+                summary.close();
+            }
+        }
+    }
+
+    // Appends a score with two decimals, exactly like "%.2f" but without a Formatter per value
+    static void appendScore(StringBuilder out, double value) {
+        double scaled = value * 100;
+        double fraction = scaled - Math.floor(scaled);
+        // Values close to a rounding tie, negative or huge ones take the slow, exact path
+        if (!(value >= 0 && value < 1e12) || Math.abs(fraction - 0.5) < 1e-6) {
+            out.append(String.format("%.2f", value));
+            return;
         }
+        long cents = Math.round(scaled);
+        long hundredths = cents % 100;
+        out.append(cents / 100).append(DECIMAL_SEPARATOR);
+        if (hundredths < 10) out.append('0');
+        out.append(hundredths);
     }
 }
@@ -0,0 +1,22 @@
+package main;
+
+import java.io.IOException;
+
+// Compiles a word-per-line dictionary into the memory-mapped format read by PackedDictionary.
+// Usage: java -cp ComprehensibilityScoreCalculator.jar main.DictionaryCompiler dictionary.txt dictionary.bin
+public class DictionaryCompiler {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java -cp ComprehensibilityScoreCalculator.jar main.DictionaryCompiler <input.txt> <output.bin>");
+            return;
+        }
+        try {
+            TextDictionary dictionary = TextDictionary.load(args[0]);
+            PackedDictionary.write(dictionary.words(), args[1]);
+            System.out.println("Compiled " + dictionary.size() + " words into " + args[1]);
+        } catch (IOException e) {
+            System.err.println("Error compiling dictionary: " + e.getMessage());
+        }
+    }
+}
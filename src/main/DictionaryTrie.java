@@ -0,0 +1,216 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Read-only prefix tree over the dictionary words, used to split run-together identifiers
+// such as "getuserbyid" into words. Nodes are numbered breadth first, so the children of a
+// node are contiguous: node n owns [firstChild[n], firstChild[n + 1]), sorted by label.
+// Children labelled a-z, which is all that identifier words contain, are found without a
+// search: bit c of the node's letter mask marks a child with label 'a' + c, and its index is
+// the node's letter start plus the number of lower bits set. Other labels use a binary search.
+// The sign bit of the mask marks the nodes that end a word. Mask and start of node n sit side
+// by side in letters[2n] and letters[2n + 1], so a step down the trie touches one cache line.
+// Every walk starts with a lookup of the node of its first three letters in a 26^3 table,
+// which saves the steps that a walk through gibberish mostly consists of.
+final class DictionaryTrie {
+    private final char[] labels;
+    private final int[] firstChild;
+    private final int[] letters;
+    // Node of each three-letter prefix (676 * first + 26 * second + third), -1 when no word
+    // starts with it
+    private final int[] prefixNodes = new int[26 * 26 * 26];
+    // Bit c is set when the letter 'a' + c is a word by itself, and bit c of
+    // twoLetterWords[first] when 'a' + first followed by 'a' + c is
+    private int oneLetterWords;
+    private final int[] twoLetterWords = new int[26];
+
+    private DictionaryTrie(char[] labels, int[] firstChild, boolean[] terminal) {
+        this.labels = labels;
+        this.firstChild = firstChild;
+        int nodes = labels.length;
+        letters = new int[2 * nodes];
+        for (int node = 0; node < nodes; node++) {
+            int mask = terminal[node] ? Integer.MIN_VALUE : 0;
+            int start = firstChild[node + 1];
+            for (int c = firstChild[node + 1] - 1; c >= firstChild[node]; c--) {
+                char label = labels[c];
+                if (label >= 'a' && label <= 'z') {
+                    mask |= 1 << (label - 'a');
+                    start = c;
+                }
+            }
+            letters[2 * node] = mask;
+            letters[2 * node + 1] = start;
+        }
+
+        Arrays.fill(prefixNodes, -1);
+        for (int first = 0; first < 26; first++) {
+            int node = child(0, (char) ('a' + first));
+            if (node < 0) continue;
+            if (letters[2 * node] < 0) oneLetterWords |= 1 << first;
+            for (int second = 0; second < 26; second++) {
+                int pair = child(node, (char) ('a' + second));
+                if (pair < 0) continue;
+                if (letters[2 * pair] < 0) twoLetterWords[first] |= 1 << second;
+                for (int third = 0; third < 26; third++) {
+                    prefixNodes[676 * first + 26 * second + third] = child(pair, (char) ('a' + third));
+                }
+            }
+        }
+    }
+
+    static DictionaryTrie build(List<String> words) {
+        List<String> sorted = new ArrayList<>(words);
+        Collections.sort(sorted);
+
+        // Each queued node covers the sorted words [from, to) that share its depth-long prefix
+        int capacity = 1024;
+        char[] labels = new char[capacity];
+        int[] firstChild = new int[capacity + 1];
+        boolean[] terminal = new boolean[capacity];
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        int[] depth = new int[capacity];
+        from[0] = 0;
+        to[0] = sorted.size();
+        int nodes = 1;
+
+        for (int node = 0; node < nodes; node++) {
+            int d = depth[node];
+            int i = from[node];
+            // The word equal to the prefix itself sorts first
+            while (i < to[node] && sorted.get(i).length() == d) {
+                terminal[node] = true;
+                i++;
+            }
+            firstChild[node] = nodes;
+            while (i < to[node]) {
+                char label = sorted.get(i).charAt(d);
+                int end = i + 1;
+                while (end < to[node] && sorted.get(end).charAt(d) == label) end++;
+
+                if (nodes == capacity) {
+                    capacity *= 2;
+                    labels = Arrays.copyOf(labels, capacity);
+                    firstChild = Arrays.copyOf(firstChild, capacity + 1);
+                    terminal = Arrays.copyOf(terminal, capacity);
+                    from = Arrays.copyOf(from, capacity);
+                    to = Arrays.copyOf(to, capacity);
+                    depth = Arrays.copyOf(depth, capacity);
+                }
+                labels[nodes] = label;
+                from[nodes] = i;
+                to[nodes] = end;
+                depth[nodes] = d + 1;
+                nodes++;
+                i = end;
+            }
+        }
+        firstChild[nodes] = nodes;
+
+        return new DictionaryTrie(Arrays.copyOf(labels, nodes), Arrays.copyOf(firstChild, nodes + 1),
+                                  Arrays.copyOf(terminal, nodes));
+    }
+
+    // True when the whole word is a sequence of dictionary words. The positions a split
+    // reaches are kept in a bit mask and walked from farthest first, which tries the longest
+    // word at each position first (a depth-first search without recursion) and ends quickly on
+    // the usual identifier made of real words. Every position is walked at most once. Words too
+    // long for the mask fall back to a plain left-to-right pass.
+    boolean segments(String word) {
+        int length = word.length();
+        if (length == 0) return false;
+        if (length >= Long.SIZE) return segmentsLong(word);
+        long whole = 1L << length;
+        long pending = 1;
+        long walked = 0;
+        while (pending != 0) {
+            int start = Long.SIZE - 1 - Long.numberOfLeadingZeros(pending);
+            pending &= ~(1L << start);
+            walked |= 1L << start;
+            long ends = wordEnds(word, start);
+            if ((ends & whole) != 0) return true;
+            pending |= ends & ~walked;
+        }
+        return false;
+    }
+
+    // Bit i + 1 is set when word[start, i] is a dictionary word
+    private long wordEnds(String word, int start) {
+        int length = word.length();
+        long ends = 0;
+        int node = 0;
+        int mask = letters[0];
+        int i = start;
+        if (start + 2 < length) {
+            int first = word.charAt(start) - 'a';
+            int second = word.charAt(start + 1) - 'a';
+            int third = word.charAt(start + 2) - 'a';
+            if (first >= 0 && first < 26 && second >= 0 && second < 26 && third >= 0 && third < 26) {
+                if ((oneLetterWords & 1 << first) != 0) ends |= 1L << (start + 1);
+                if ((twoLetterWords[first] & 1 << second) != 0) ends |= 1L << (start + 2);
+                node = prefixNodes[676 * first + 26 * second + third];
+                if (node < 0) return ends;
+                mask = letters[2 * node];
+                if (mask < 0) ends |= 1L << (start + 3);
+                i = start + 3;
+            }
+        }
+        for (; i < length; i++) {
+            // The a-z step of child(), reusing the mask that was read to test for a word end
+            int letter = word.charAt(i) - 'a';
+            if (letter >= 0 && letter < 26) {
+                int bit = 1 << letter;
+                if ((mask & bit) == 0) break;
+                node = letters[2 * node + 1] + Integer.bitCount(mask & LETTERS & (bit - 1));
+            } else {
+                node = child(node, word.charAt(i));
+                if (node < 0) break;
+            }
+            mask = letters[2 * node];
+            if (mask < 0) ends |= 1L << (i + 1);
+        }
+        return ends;
+    }
+
+    private boolean segmentsLong(String word) {
+        int length = word.length();
+        boolean[] reachable = new boolean[length + 1];
+        reachable[0] = true;
+        for (int start = 0; start < length; start++) {
+            if (!reachable[start]) continue;
+            int node = 0;
+            for (int i = start; i < length; i++) {
+                node = child(node, word.charAt(i));
+                if (node < 0) break;
+                if (letters[2 * node] < 0) reachable[i + 1] = true;
+            }
+            if (reachable[length]) return true;
+        }
+        return false;
+    }
+
+    private static final int LETTERS = (1 << 26) - 1;
+
+    private int child(int node, char label) {
+        if (label >= 'a' && label <= 'z') {
+            int bit = 1 << (label - 'a');
+            int mask = letters[2 * node] & LETTERS;
+            if ((mask & bit) == 0) return -1;
+            return letters[2 * node + 1] + Integer.bitCount(mask & (bit - 1));
+        }
+        int low = firstChild[node];
+        int high = firstChild[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char value = labels[mid];
+            if (value < label) low = mid + 1;
+            else if (value > label) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,38 @@
+package main;
+
+// One scored declaration: its name, kind (Class, Method, Variable, ...), score between 0
+// and 1 and readability category ("Well Readable", "Moderate Readable" or "Non Readable")
+public final class EntityScore {
+    private final String name;
+    private final String type;
+    private final double score;
+    private final String readability;
+
+    EntityScore(String name, String type, double score, String readability) {
+        this.name = name;
+        this.type = type;
+        this.score = score;
+        this.readability = readability;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String type() {
+        return type;
+    }
+
+    public double score() {
+        return score;
+    }
+
+    public String readability() {
+        return readability;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + name + ": " + score + " (" + readability + ")";
+    }
+}
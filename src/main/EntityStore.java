@@ -0,0 +1,141 @@
+package main;
+
+import java.util.Arrays;
+
+// Scored entities kept as parallel arrays instead of one object per entity. Type and
+// readability are stored as byte codes, and each file owns the index range
+// [fileStart(f), fileEnd(f)) of the shared arrays. With tens of millions of entities this
+// costs a few bytes per entity rather than several object headers and label references.
+// Names belong to the store and are released with it; loaders that read many repeated names
+// share equal strings while they fill a store (see AnalysisManifest), so long-running modes
+// (--serve, --watch, the Scorer API) keep no names of results they have dropped.
+//
+// A store is filled by one thread; afterwards it can be read from any thread it was safely
+// handed to. file(f) returns a read-only view of one file that shares the arrays.
+final class EntityStore {
+    static final String[] TYPES = {
+        "Package", "Class", "Method", "Variable", "Function", "Include", "Macro",
+        "Struct", "Enum", "Typedef", "Union", "Namespace", "Template"
+    };
+
+    static final byte WELL_READABLE = 0;
+    static final byte MODERATE_READABLE = 1;
+    static final byte NON_READABLE = 2;
+    static final String[] READABILITY = {"Well Readable", "Moderate Readable", "Non Readable"};
+
+    private String[] names;
+    private byte[] types;
+    private byte[] readability;
+    private double[] scores;
+    private int size = 0;
+    private int[] fileStarts = new int[1];
+    private int files = 0;
+    private final boolean view;
+
+    EntityStore(int capacity) {
+        capacity = Math.max(capacity, 4);
+        names = new String[capacity];
+        types = new byte[capacity];
+        readability = new byte[capacity];
+        scores = new double[capacity];
+        view = false;
+    }
+
+    private EntityStore(EntityStore source, int file) {
+        names = source.names;
+        types = source.types;
+        readability = source.readability;
+        scores = source.scores;
+        fileStarts = new int[]{source.fileStart(file)};
+        size = source.fileEnd(file);
+        files = 1;
+        view = true;
+    }
+
+    // Starts a new file; entities added from now on belong to it
+    int beginFile() {
+        if (view) throw new IllegalStateException("Read-only view");
+        if (files == fileStarts.length) fileStarts = Arrays.copyOf(fileStarts, files * 2);
+        fileStarts[files] = size;
+        return files++;
+    }
+
+    void add(String name, String type, double score) {
+        add(name, typeCode(type), readabilityOf(score), score);
+    }
+
+    void add(String name, byte type, byte readabilityCode, double score) {
+        if (view || files == 0) throw new IllegalStateException("No file to add to");
+        if (size == scores.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            readability = Arrays.copyOf(readability, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+        names[size] = name;
+        types[size] = type;
+        readability[size] = readabilityCode;
+        scores[size] = score;
+        size++;
+    }
+
+    // Read-only view of a single file, sharing this store's arrays
+    EntityStore file(int file) {
+        return new EntityStore(this, file);
+    }
+
+    int fileCount() {
+        return files;
+    }
+
+    int fileStart(int file) {
+        return fileStarts[file];
+    }
+
+    int fileEnd(int file) {
+        return file + 1 < files ? fileStarts[file + 1] : size;
+    }
+
+    String name(int i) {
+        return names[i];
+    }
+
+    byte typeCode(int i) {
+        return types[i];
+    }
+
+    String type(int i) {
+        return TYPES[types[i]];
+    }
+
+    byte readabilityCode(int i) {
+        return readability[i];
+    }
+
+    String readability(int i) {
+        return READABILITY[readability[i]];
+    }
+
+    double score(int i) {
+        return scores[i];
+    }
+
+    // Mean score of one file, 0 for a file without entities
+    double fileAverage(int file) {
+        return Arrays.stream(scores, fileStart(file), fileEnd(file)).average().orElse(0.0);
+    }
+
+    static byte readabilityOf(double score) {
+        if (score == 1) return WELL_READABLE;
+        if (score >= 0.5) return MODERATE_READABLE;
+        return NON_READABLE;
+    }
+
+    static byte typeCode(String type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i].equals(type)) return (byte) i;
+        }
+        throw new IllegalArgumentException("Unknown entity type: " + type);
+    }
+}
@@ -0,0 +1,285 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+// Scores what a commit range changes instead of the whole tree, for gating pull requests. The
+// range is diffed with the local git executable (no network access). Declarations are
+// extracted from the added lines only. Each changed file is also scored at the base and head
+// revision to report how its average moved. Only the changed files are read, as blobs from
+// the object database, so the work grows with the size of the diff, not of the repository.
+//
+// RANGE is BASE..HEAD, BASE...HEAD (from the merge base, like a pull request) or BASE
+// (meaning BASE..HEAD of the current checkout).
+final class GitDiffAnalysis {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private static final class ChangedFile {
+        final String oldPath;
+        final String newPath;
+        final Language language;
+        final StringBuilder addedLines = new StringBuilder();
+
+        ChangedFile(String oldPath, String newPath, Language language) {
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+            this.language = language;
+        }
+    }
+
+    private final Scorer scorer;
+    private final Set<Language> languages;
+    private File root;
+
+    GitDiffAnalysis(Scorer scorer, Set<Language> languages) {
+        this.scorer = scorer;
+        this.languages = languages;
+    }
+
+    // Diffs the range, limited to paths when any are given, and writes the diff report
+    void run(String range, List<String> paths, String outputDirectory) throws IOException {
+        File start = new File(paths.isEmpty() ? "." : paths.get(0)).getAbsoluteFile();
+        if (!start.isDirectory()) start = start.getParentFile();
+        root = new File(gitText(start, "rev-parse", "--show-toplevel"));
+
+        String base;
+        String head;
+        int dots = range.indexOf("..");
+        if (dots < 0) {
+            base = resolve(range);
+            head = resolve("HEAD");
+        } else {
+            boolean mergeBase = range.startsWith("...", dots);
+            String left = range.substring(0, dots);
+            String right = range.substring(dots + (mergeBase ? 3 : 2));
+            head = resolve(right.isEmpty() ? "HEAD" : right);
+            base = resolve(left.isEmpty() ? "HEAD" : left);
+            if (mergeBase) base = gitText(root, "merge-base", base, head);
+        }
+
+        // Everything the parser relies on is set here, so user configuration (diff.noprefix,
+        // diff.mnemonicPrefix, diff.relative, textconv filters, ...) cannot change the output
+        List<String> diff = new ArrayList<>(Arrays.asList("-c", "core.quotePath=false", "-c", "diff.noprefix=false",
+                "diff", "--no-color", "--no-ext-diff", "--no-textconv", "--no-relative",
+                "--src-prefix=a/", "--dst-prefix=b/", "--unified=0", "--inter-hunk-context=0",
+                "--diff-filter=AMR", "--find-renames", base, head, "--"));
+        for (String path : paths) diff.add(new File(path).getAbsolutePath());
+        List<ChangedFile> files = parseDiff(git(root, diff.toArray(new String[0])));
+
+        File outputDir = new File(outputDirectory);
+        if (!outputDir.exists()) outputDir.mkdirs();
+        String reportFileName = new File(outputDir, "Diff_Comprehensibility_Report.csv").getPath();
+        int addedCount = 0;
+        double addedTotal = 0.0;
+        try (BlobReader blobs = new BlobReader(root);
+             Writer report = new BufferedWriter(new FileWriter(reportFileName))) {
+            report.write("Class Name with Path,Base Average,Head Average,Average Change,Entity Name,Entity Type,Comprehensibility Score,Comprehensibility Category");
+            report.write(LINE_SEPARATOR);
+
+            StringBuilder row = new StringBuilder(256);
+            for (ChangedFile file : files) {
+                double headAverage = analyze(blobs.read(head + ":" + file.newPath), file.language).fileAverage(0);
+                EntityStore added = scorer.score(LexerExtractor.extract(file.addedLines, file.language));
+
+                row.setLength(0);
+                row.append(file.newPath).append(',');
+                if (file.oldPath != null) {
+                    double baseAverage = analyze(blobs.read(base + ":" + file.oldPath), file.language).fileAverage(0);
+                    ComprehensibilityScoreCalculator.appendScore(row, baseAverage);
+                    row.append(',');
+                    ComprehensibilityScoreCalculator.appendScore(row, headAverage);
+                    row.append(',');
+                    appendChange(row, headAverage - baseAverage);
+                } else {
+                    row.append(',');
+                    ComprehensibilityScoreCalculator.appendScore(row, headAverage);
+                    row.append(',');
+                }
+                row.append(",,,,").append(LINE_SEPARATOR);
+                report.append(row);
+
+                for (int i = added.fileStart(0); i < added.fileEnd(0); i++) {
+                    row.setLength(0);
+                    row.append(",,,,").append(added.name(i)).append(',').append(added.type(i)).append(',');
+                    ComprehensibilityScoreCalculator.appendScore(row, added.score(i));
+                    row.append(',').append(added.readability(i)).append(LINE_SEPARATOR);
+                    report.append(row);
+                    addedTotal += added.score(i);
+                    addedCount++;
+                }
+            }
+        }
+
+        System.out.println("Diff CSV report generated: " + reportFileName);
+        System.out.printf("Changed files: %d, identifiers added: %d%n", files.size(), addedCount);
+        System.out.printf("Average Score of Added Identifiers: %.2f%n", addedCount == 0 ? 0.0 : addedTotal / addedCount);
+        System.out.println("------------------------------------------------------------------------------------------------------------------------------------------------");
+    }
+
+    // A change that rounds to zero prints as 0.00, not -0.00
+    static void appendChange(StringBuilder row, double change) {
+        if (Math.abs(change) < 0.005) change = 0.0;
+        ComprehensibilityScoreCalculator.appendScore(row, change);
+    }
+
+    private EntityStore analyze(byte[] blob, Language language) {
+        return scorer.score(LexerExtractor.extract(SourceBuffer.forCurrentThread().decode(blob), language));
+    }
+
+    // Collects the added lines of every changed file in a supported language. With
+    // --unified=0 a hunk holds only removed ("-") and added ("+") lines.
+    private List<ChangedFile> parseDiff(byte[] output) {
+        String diff = SourceBuffer.forCurrentThread().decode(output).toString();
+        List<ChangedFile> files = new ArrayList<>();
+        ChangedFile current = null;
+        String oldPath = null;
+        boolean inHunk = false;
+
+        int lineStart = 0;
+        while (lineStart < diff.length()) {
+            int lineEnd = diff.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = diff.length();
+            String line = diff.substring(lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+
+            if (line.startsWith("diff --git ")) {
+                current = null;
+                oldPath = null;
+                inHunk = false;
+            } else if (inHunk) {
+                if (current != null && line.startsWith("+")) current.addedLines.append(line, 1, line.length()).append('\n');
+            } else if (line.startsWith("--- ")) {
+                oldPath = parsePath(line.substring(4));
+            } else if (line.startsWith("+++ ")) {
+                String newPath = parsePath(line.substring(4));
+                Language language = newPath == null ? null : languageOf(newPath);
+                if (language != null) {
+                    current = new ChangedFile(oldPath, newPath, language);
+                    files.add(current);
+                }
+            } else if (line.startsWith("@@")) {
+                inHunk = true;
+            }
+        }
+        return files;
+    }
+
+    private Language languageOf(String path) {
+        for (Language language : languages) {
+            if (language.matches(path)) return language;
+        }
+        return null;
+    }
+
+    // "a/dir/File.java" -> "dir/File.java"; null for /dev/null. Names with special characters
+    // come C-quoted even with core.quotePath=false. The diff is run with the a/ and b/ prefixes.
+    private static String parsePath(String name) {
+        if (name.endsWith("\t")) name = name.substring(0, name.length() - 1);
+        if (name.equals("/dev/null")) return null;
+        if (name.startsWith("\"") && name.endsWith("\"") && name.length() >= 2) {
+            StringBuilder unquoted = new StringBuilder();
+            for (int i = 1; i < name.length() - 1; i++) {
+                char c = name.charAt(i);
+                if (c == '\\' && i + 1 < name.length() - 1) {
+                    c = name.charAt(++i);
+                    if (c == 't') c = '\t';
+                    else if (c == 'n') c = '\n';
+                }
+                unquoted.append(c);
+            }
+            name = unquoted.toString();
+        }
+        return name.startsWith("a/") || name.startsWith("b/") ? name.substring(2) : name;
+    }
+
+    private String resolve(String revision) throws IOException {
+        try {
+            return gitText(root, "rev-parse", "--verify", "--quiet", revision + "^{commit}");
+        } catch (IOException e) {
+            throw new IOException("Unknown revision: " + revision, e);
+        }
+    }
+
+    private static String gitText(File directory, String... args) throws IOException {
+        return new String(git(directory, args), StandardCharsets.UTF_8).trim();
+    }
+
+    // Runs git in directory and returns its output; git's own error message goes to stderr
+    private static byte[] git(File directory, String... args) throws IOException {
+        List<String> command = new ArrayList<>(Arrays.asList("git", "-C", directory.getPath()));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            in.transferTo(output);
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) throw new IOException("git " + args[0] + " failed (exit code " + exitCode + ")");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for git", e);
+        }
+        return output.toByteArray();
+    }
+
+    // Reads blobs through one long-running "git cat-file --batch" instead of a process per file
+    private static final class BlobReader implements Closeable {
+        private final Process process;
+        private final OutputStream requests;
+        private final InputStream responses;
+
+        BlobReader(File root) throws IOException {
+            process = new ProcessBuilder("git", "-C", root.getPath(), "cat-file", "--batch")
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            requests = process.getOutputStream();
+            responses = new BufferedInputStream(process.getInputStream());
+        }
+
+        // Object names look like "<commit>:<path>"
+        byte[] read(String object) throws IOException {
+            requests.write((object + "\n").getBytes(StandardCharsets.UTF_8));
+            requests.flush();
+
+            // "<id> blob <size>" or "<object> missing"
+            String header = readLine();
+            String[] parts = header.split(" ");
+            if (parts.length != 3 || !parts[1].equals("blob")) {
+                throw new IOException("Cannot read " + object + " from git: " + header);
+            }
+            byte[] content = responses.readNBytes(Integer.parseInt(parts[2]));
+            responses.read(); // newline after the content
+            return content;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int c;
+            while ((c = responses.read()) != '\n') {
+                if (c < 0) throw new IOException("git cat-file ended unexpectedly");
+                line.write(c);
+            }
+            return new String(line.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            requests.close();
+            responses.close();
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package main;
+
+// Splits identifiers into words in one pass over the characters, with the same result as
+// splitting on camelCase / PascalCase humps, letter-digit changes and '-' / '_' separators:
+//   (?<=[a-z])(?=[A-Z]) | (?<=[A-Z])(?=[A-Z][a-z]) | (?<=[a-z])(?=[0-9]) | (?<=[0-9])(?=[A-Za-z]) | [-_]
+// Words are reported as [start, end) ranges so no intermediate Strings are created.
+//
+// Typical loop:
+//   for (int start = 0; start < name.length(); start = end) {
+//       if (isSeparator(name.charAt(start))) { end = start + 1; continue; }
+//       end = wordEnd(name, start);
+//       ... word is name[start, end)
+//   }
+final class IdentifierTokenizer {
+
+    private IdentifierTokenizer() {
+    }
+
+    static boolean isSeparator(char c) {
+        return c == '-' || c == '_';
+    }
+
+    // Returns the exclusive end of the word that starts at start (start must not be a separator)
+    static int wordEnd(CharSequence name, int start) {
+        int length = name.length();
+        int p = start + 1;
+        while (p < length) {
+            char current = name.charAt(p);
+            if (isSeparator(current) || isBoundary(name.charAt(p - 1), current, p + 1 < length ? name.charAt(p + 1) : 0)) {
+                break;
+            }
+            p++;
+        }
+        return p;
+    }
+
+    // True when every character of name[start, end) is an ASCII digit
+    static boolean isNumber(CharSequence name, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(name.charAt(i))) return false;
+        }
+        return end > start;
+    }
+
+    // Zero-width split point between previous and current; next is the character after current or 0
+    private static boolean isBoundary(char previous, char current, char next) {
+        if (isLower(previous)) return isUpper(current) || isDigit(current);
+        if (isUpper(previous)) return isUpper(current) && isLower(next);
+        if (isDigit(previous)) return isLower(current) || isUpper(current);
+        return false;
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,30 @@
+package main;
+
+import java.util.Locale;
+
+// Minimal JSON value formatting shared by the statistics export, the scoring server and the
+// JSON Lines report
+final class Json {
+    private Json() {
+    }
+
+    static String string(String value) {
+        return appendString(new StringBuilder(value.length() + 2), value).toString();
+    }
+
+    static StringBuilder appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') out.append('\\').append(c);
+            else if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+            else out.append(c);
+        }
+        return out.append('"');
+    }
+
+    // Fixed six decimals, for timings and rates
+    static String number(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
@@ -0,0 +1,78 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+// Gzip-compressed JSON Lines report (--format jsonl): one JSON object per file and line, with
+// the same fields as the scoring server's response:
+//   {"path": ..., "language": ..., "averageScore": ..., "entities": [{"name": ..., "type": ...,
+//    "score": ..., "readability": ...}, ...]}
+// Names are escaped and scores keep full precision, so no row needs special parsing.
+final class JsonLinesReportWriter implements ReportSink {
+    static final String FILE_NAME = "Comprehensibility_Report.jsonl.gz";
+
+    private final String fileName;
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(1024);
+
+    JsonLinesReportWriter(String directory) throws IOException {
+        File outputDir = new File(directory);
+        if (!outputDir.exists()) outputDir.mkdirs();
+        fileName = new File(outputDir, FILE_NAME).getPath();
+        out = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(new FileOutputStream(fileName), 1 << 16), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    @Override
+    public void writeFile(File file, EntityStore results) throws IOException {
+        String path = file.getPath();
+        line.setLength(0);
+        line.append("{\"path\": ");
+        Json.appendString(line, path);
+        Language language = languageOf(path);
+        if (language != null) {
+            line.append(", \"language\": ");
+            Json.appendString(line, language.displayName);
+        }
+        line.append(", \"averageScore\": ").append(results.fileAverage(0)).append(", \"entities\": [");
+        for (int i = results.fileStart(0); i < results.fileEnd(0); i++) {
+            if (i > results.fileStart(0)) line.append(", ");
+            line.append("{\"name\": ");
+            Json.appendString(line, results.name(i));
+            line.append(", \"type\": \"").append(results.type(i))
+                .append("\", \"score\": ").append(results.score(i))
+                .append(", \"readability\": \"").append(results.readability(i)).append("\"}");
+        }
+        line.append("]}\n");
+        out.append(line);
+    }
+
+    private static Language languageOf(String path) {
+        for (Language language : Language.values()) {
+            if (language.matches(path)) return language;
+        }
+        return null;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Closing writes the gzip trailer; close() after it does nothing
+        out.close();
+    }
+
+    @Override
+    public void announce() {
+        System.out.println("JSON Lines report generated: " + fileName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
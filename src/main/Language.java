@@ -0,0 +1,58 @@
+package main;
+
+import main.ComprehensibilityScoreCalculator.EntityExtractor;
+
+// Supported languages, the file extensions they claim and the extractors that handle them
+public enum Language {
+    JAVA("Java", "Java", LexerExtractor::extractJava,
+        ComprehensibilityScoreCalculator::extractEntities, ".java"),
+    CSHARP("CSharp", "C#", LexerExtractor::extractCSharp,
+        ComprehensibilityScoreCalculator::extractCSharpEntities, ".cs"),
+    PYTHON("Python", "Python", LexerExtractor::extractPython,
+        ComprehensibilityScoreCalculator::extractPythonEntities, ".py"),
+    JAVASCRIPT("JavaScript", "JavaScript", LexerExtractor::extractJavaScript,
+        ComprehensibilityScoreCalculator::extractJavaScriptEntities, ".js"),
+    CPP("Cpp", "C/C++", LexerExtractor::extractCpp,
+        ComprehensibilityScoreCalculator::extractCppEntities, ".cpp", ".c");
+
+    final String label;
+    final String displayName;
+    // Single-pass scanner used by default, and the original regex extractor it mirrors
+    final EntityExtractor lexerExtractor;
+    final EntityExtractor regexExtractor;
+    final String[] extensions;
+
+    Language(String label, String displayName, EntityExtractor lexerExtractor,
+             EntityExtractor regexExtractor, String... extensions) {
+        this.label = label;
+        this.displayName = displayName;
+        this.lexerExtractor = lexerExtractor;
+        this.regexExtractor = regexExtractor;
+        this.extensions = extensions;
+    }
+
+    // Human-readable name, e.g. "C#" or "C/C++"
+    public String displayName() {
+        return displayName;
+    }
+
+    // True when the file name has one of this language's extensions
+    public boolean matches(String fileName) {
+        for (String ext : extensions) {
+            if (fileName.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    // Accepts the names used on the command line (java, cs, c#, py, js, cpp, c, ...); null if unknown
+    public static Language fromName(String name) {
+        switch (name.toLowerCase()) {
+            case "java": return JAVA;
+            case "cs": case "c#": case "csharp": return CSHARP;
+            case "py": case "python": return PYTHON;
+            case "js": case "javascript": return JAVASCRIPT;
+            case "c": case "cpp": case "c++": return CPP;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// The words that score as readable, resolved once at startup from layers, lowest first:
+//   1. the base dictionary (dictionary.txt or its compiled form)
+//   2. the built-in readables (Scorer.BUILTIN_READABLES)
+//   3. glossary files (--glossary), in the order given, e.g. an organization's glossary
+//      followed by a project's overrides
+// A glossary holds one word per line; "!word" withdraws a word that a lower layer made
+// readable, and blank lines and "#" comments are skipped. Dictionary words count from 3
+// characters on; built-in and glossary words at any length, since they are mostly
+// abbreviations ("id", "ws").
+//
+// The result is immutable and safe to share between threads. The base dictionary is used in
+// place, so a compiled one stays memory-mapped. Over a compiled dictionary, which stores a
+// Bloom filter of its words, the filter (plus the layer words) rules out most words that are
+// not readable before the binary search. An in-heap hash set answers a miss about as fast as
+// the filter and a hit faster without it, so a text dictionary is probed directly (see
+// FullMatchBenchmark).
+final class LayeredDictionary {
+    private final WordDictionary base;
+    // Built-in and glossary words, readable at any length
+    private final Set<String> layerWords;
+    // Words withdrawn by a glossary; they may still be in the base dictionary
+    private final Set<String> withdrawn;
+    // Trigrams of the glossary words, for partial matches
+    private final Set<String> layerTrigrams;
+    // Null when the base dictionary keeps no filter
+    private final BloomFilter filter;
+    private final boolean hasGlossaries;
+
+    private LayeredDictionary(WordDictionary base, Set<String> layerWords, Set<String> withdrawn,
+                              Set<String> layerTrigrams, boolean hasGlossaries) {
+        this.base = base;
+        this.layerWords = layerWords;
+        this.withdrawn = withdrawn;
+        this.layerTrigrams = layerTrigrams;
+        this.hasGlossaries = hasGlossaries;
+
+        // The filter may hold more than the readable words (short and withdrawn dictionary
+        // words); isReadable settles those
+        BloomFilter baseFilter = base.wordFilter();
+        if (baseFilter != null) {
+            filter = baseFilter.copy();
+            layerWords.forEach(filter::add);
+        } else {
+            filter = null;
+        }
+    }
+
+    // The base dictionary and the built-in readables only
+    static LayeredDictionary of(WordDictionary base) {
+        return new LayeredDictionary(base, Scorer.BUILTIN_READABLES, Collections.<String>emptySet(),
+                                     Collections.<String>emptySet(), false);
+    }
+
+    // Applies the glossary files in order on top of the base dictionary and the built-ins
+    static LayeredDictionary load(WordDictionary base, List<String> glossaryFiles) throws IOException {
+        if (glossaryFiles.isEmpty()) return of(base);
+
+        Set<String> layerWords = new HashSet<>(Scorer.BUILTIN_READABLES);
+        Set<String> withdrawn = new HashSet<>();
+        Set<String> glossaryWords = new HashSet<>();
+        for (String file : glossaryFiles) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String word = line.trim().toLowerCase();
+                    if (word.isEmpty() || word.startsWith("#")) continue;
+                    if (word.startsWith("!")) {
+                        word = word.substring(1).trim();
+                        layerWords.remove(word);
+                        glossaryWords.remove(word);
+                        withdrawn.add(word);
+                    } else {
+                        withdrawn.remove(word);
+                        layerWords.add(word);
+                        glossaryWords.add(word);
+                    }
+                }
+            }
+        }
+
+        Set<String> layerTrigrams = new HashSet<>();
+        for (String word : glossaryWords) {
+            for (int i = 0; i <= word.length() - 3; i++) {
+                layerTrigrams.add(word.substring(i, i + 3));
+            }
+        }
+        return new LayeredDictionary(base, layerWords, withdrawn, layerTrigrams, true);
+    }
+
+    WordDictionary base() {
+        return base;
+    }
+
+    // False for most words that are not readable, without an exact lookup; always true
+    // without a filter
+    boolean mightBeReadable(String lowercaseWord) {
+        return filter == null || filter.mightContain(lowercaseWord);
+    }
+
+    // Exact check; callers ask mightBeReadable first, which settles most misses
+    boolean isReadable(String lowercaseWord) {
+        if (layerWords.contains(lowercaseWord)) return true;
+        if (lowercaseWord.length() < 3 || withdrawn.contains(lowercaseWord)) return false;
+        return base.contains(lowercaseWord);
+    }
+
+    // True when the three characters of word starting at index occur in a dictionary or
+    // glossary word
+    boolean containsTrigram(String word, int index) {
+        if (base.containsTrigram(word, index)) return true;
+        return !layerTrigrams.isEmpty() && layerTrigrams.contains(word.substring(index, index + 3));
+    }
+
+    // Visits every word isReadable accepts, once
+    void forEachReadable(Consumer<String> action) {
+        base.forEachWord(word -> {
+            if (word.length() >= 3 && !layerWords.contains(word) && !withdrawn.contains(word)) action.accept(word);
+        });
+        layerWords.forEach(action);
+    }
+
+    // Identifies the readable words; equal to the earlier dictionary fingerprint without glossaries
+    long fingerprint() {
+        long h = base.size();
+        h = 31 * h + base.contentHash();
+        h = 31 * h + Scorer.BUILTIN_READABLES.hashCode();
+        if (hasGlossaries) h = 31 * h + Objects.hash(layerWords, withdrawn);
+        return h;
+    }
+}
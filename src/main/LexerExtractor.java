@@ -0,0 +1,576 @@
+package main;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Declaration extractor that scans each line once instead of running a regex per declaration
+// kind over it. A line is split into its words (maximal [A-Za-z0-9_] runs, the \w of the
+// regexes) a single time; the rules of each language then walk those words and look at the
+// neighbouring characters. Where a regex has \b, the character before or after the word is
+// checked the way java.util.regex does, which counts any Unicode letter or digit as a word
+// character: "éclass A" holds no class declaration although "class" is a word of it. Every
+// rule moves strictly forward, so the cost is linear in the line length and long generic
+// signatures cannot trigger the backtracking the C# method regex suffers from. Files are read
+// in one go through SourceBuffer and lines are scanned in place, without a String per line.
+//
+// Each rule mirrors one of the regexes in ComprehensibilityScoreCalculator (quoted above the
+// rule) and yields the same entities in the same order: per line, rule by rule, left to right.
+final class LexerExtractor {
+    private static final String[] CSHARP_FIELD_MODIFIERS = {
+        "public", "private", "protected", "internal", "static", "readonly", "volatile", "const"
+    };
+
+    private final Language language;
+    private final List<String[]> entities = new ArrayList<>();
+
+    // Current line: text[from, to) and the words found in it
+    private CharSequence text;
+    private int from;
+    private int to;
+    private int[] wordStart = new int[32];
+    private int[] wordEnd = new int[32];
+    private int words;
+
+    private LexerExtractor(Language language) {
+        this.language = language;
+    }
+
+    static List<String[]> extractJava(String filePath) throws IOException {
+        return extractFile(filePath, Language.JAVA);
+    }
+
+    static List<String[]> extractCSharp(String filePath) throws IOException {
+        return extractFile(filePath, Language.CSHARP);
+    }
+
+    static List<String[]> extractPython(String filePath) throws IOException {
+        return extractFile(filePath, Language.PYTHON);
+    }
+
+    static List<String[]> extractJavaScript(String filePath) throws IOException {
+        return extractFile(filePath, Language.JAVASCRIPT);
+    }
+
+    static List<String[]> extractCpp(String filePath) throws IOException {
+        return extractFile(filePath, Language.CPP);
+    }
+
+    private static List<String[]> extractFile(String filePath, Language language) throws IOException {
+        return extract(SourceBuffer.forCurrentThread().read(filePath), language);
+    }
+
+    // Scans source text in place; lines end at \n, \r or \r\n like BufferedReader.readLine
+    static List<String[]> extract(CharSequence content, Language language) {
+        return new LexerExtractor(language).scan(content);
+    }
+
+    private List<String[]> scan(CharSequence content) {
+        int length = content.length();
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c != '\n' && c != '\r') continue;
+            scanLine(content, lineStart, i);
+            if (c == '\r' && i + 1 < length && content.charAt(i + 1) == '\n') i++;
+            lineStart = i + 1;
+        }
+        if (lineStart < length) scanLine(content, lineStart, length);
+        return entities;
+    }
+
+    private void scanLine(CharSequence lineText, int lineFrom, int lineTo) {
+        text = lineText;
+        from = lineFrom;
+        to = lineTo;
+        tokenize();
+        switch (language) {
+            case JAVA: javaLine(); break;
+            case CSHARP: csharpLine(); break;
+            case PYTHON: pythonLine(); break;
+            case JAVASCRIPT: javaScriptLine(); break;
+            default: cppLine(); break;
+        }
+    }
+
+    // ========== Java ==========
+
+    private void javaLine() {
+        int first = skipSpace(from);
+
+        // ^\s*package\s+([a-zA-Z0-9_.]+);?   (last segment only)
+        if (literalAt(first, "package") && spaceAt(first + 7)) {
+            int start = skipSpace(first + 7);
+            int end = start;
+            while (end < to && isPackageChar(text.charAt(end))) end++;
+            if (end > start) {
+                // "package ." has no segments at all
+                String[] parts = substring(start, end).split("\\.");
+                if (parts.length > 0) addUnlessExcluded(parts[parts.length - 1], "Package");
+            }
+        }
+
+        // \bclass\s+(\w+)   (first only)
+        for (int k = 0; k < words; k++) {
+            int name = keywordName(k, "class");
+            if (name >= 0) {
+                add(word(name), "Class");
+                break;
+            }
+        }
+
+        // (public|private|protected|static|final|void)?\s+\w+\s+(\w+)\s*\(
+        int cursor = from;
+        for (int k = 0; k < words; k++) {
+            int start = wordStart[k];
+            if (start - 1 < cursor || !isSpace(text.charAt(start - 1))) continue;
+            int name = nextWordAfterSpace(k);
+            if (name < 0) continue;
+            int paren = skipSpace(wordEnd[name]);
+            if (charIs(paren, '(')) {
+                addUnlessExcluded(word(name), "Method");
+                cursor = paren + 1;
+            }
+        }
+
+        // ^(?!\s*(class|package)).*?\b(\w+)\s+(\w+)\s*(=\s*.*)?;   (first only)
+        // Neither .*? nor .* crosses a line terminator, so the whole match ends before the first
+        if (!literalAt(first, "class") && !literalAt(first, "package")) {
+            int dotEnd = dotEnd(from);
+            for (int k = 0; k < words && wordStart[k] < dotEnd; k++) {
+                if (!boundaryBefore(k)) continue;
+                int name = nextWordAfterSpace(k);
+                if (name < 0) continue;
+                int next = skipSpace(wordEnd[name]);
+                int semicolon = charIs(next, '=') ? indexOf(';', next + 1) : -1;
+                if (charIs(next, ';') || (semicolon >= 0 && semicolon < dotEnd)) {
+                    addUnlessExcluded(word(name), "Variable");
+                    break;
+                }
+            }
+        }
+    }
+
+    // ========== C# ==========
+
+    private void csharpLine() {
+        int first = skipSpace(from);
+
+        // ^\s*namespace\s+([A-Za-z0-9_.]+)
+        if (literalAt(first, "namespace") && spaceAt(first + 9)) {
+            int start = skipSpace(first + 9);
+            int end = start;
+            while (end < to && isPackageChar(text.charAt(end))) end++;
+            if (end > start) addUnlessExcluded(substring(start, end), "Package");
+        }
+
+        // \bclass\s+(\w+)
+        int cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor) continue;
+            int name = keywordName(k, "class");
+            if (name >= 0) {
+                addUnlessExcluded(word(name), "Class");
+                cursor = wordEnd[name];
+            }
+        }
+
+        // \b(?:modifier)?\s*(?:[A-Za-z_][A-Za-z0-9_<>,\s]*?)\s+(~?\w+)\s*\(
+        // The type part cannot cross '(' or '~', so the declaration must end at the first
+        // character after the type start that is not a type character.
+        cursor = from;
+        for (int k = 0; k < words; k++) {
+            int typeStart = wordStart[k];
+            if (typeStart < cursor || !isIdentifierStart(text.charAt(typeStart)) || !boundaryBefore(k)) continue;
+            int stop = typeStart + 1;
+            while (stop < to && isCSharpTypeChar(text.charAt(stop))) stop++;
+            cursor = csharpMethodAt(typeStart, stop);
+        }
+
+        // ^\s*(?:modifier)?\s+(?:type|[A-Za-z_][A-Za-z0-9_<>,]*)\s+([A-Za-z_][A-Za-z0-9_]*)\b(?:\s*(?:=|;))
+        String field = null;
+        for (String modifier : CSHARP_FIELD_MODIFIERS) {
+            if (literalAt(first, modifier) && spaceAt(first + modifier.length())) {
+                field = csharpTypeAndName(skipSpace(first + modifier.length()));
+                break;
+            }
+        }
+        // Without a modifier the declaration has to be indented
+        if (field == null && first > from) field = csharpTypeAndName(first);
+        if (field != null) addUnlessExcluded(field, "Variable");
+    }
+
+    // Adds the method whose type starts at typeStart and returns where the next search starts
+    private int csharpMethodAt(int typeStart, int stop) {
+        if (stop >= to) return stop;
+
+        if (text.charAt(stop) == '(') {
+            int nameEnd = stop;
+            while (nameEnd > typeStart && isSpace(text.charAt(nameEnd - 1))) nameEnd--;
+            int nameStart = nameEnd;
+            while (nameStart > typeStart && isWordChar(text.charAt(nameStart - 1))) nameStart--;
+            if (nameStart == nameEnd || nameStart <= typeStart || !isSpace(text.charAt(nameStart - 1))) return stop;
+            addUnlessExcluded(substring(nameStart, nameEnd), "Method");
+            return stop + 1;
+        }
+
+        if (text.charAt(stop) == '~' && isSpace(text.charAt(stop - 1))) {
+            int nameEnd = wordEndFrom(stop + 1);
+            int paren = skipSpace(nameEnd);
+            if (nameEnd > stop + 1 && charIs(paren, '(')) {
+                addUnlessExcluded("~" + substring(stop + 1, nameEnd), "Method");
+                return paren + 1;
+            }
+        }
+        return stop;
+    }
+
+    private String csharpTypeAndName(int typeStart) {
+        if (typeStart >= to || !isIdentifierStart(text.charAt(typeStart))) return null;
+        int typeEnd = typeStart + 1;
+        while (typeEnd < to && isGenericTypeChar(text.charAt(typeEnd))) typeEnd++;
+        if (!spaceAt(typeEnd)) return null;
+
+        int nameStart = skipSpace(typeEnd);
+        if (nameStart >= to || !isIdentifierStart(text.charAt(nameStart))) return null;
+        int nameEnd = wordEndFrom(nameStart);
+        int next = skipSpace(nameEnd);
+        if (charIs(next, '=') || charIs(next, ';')) return substring(nameStart, nameEnd);
+        return null;
+    }
+
+    // ========== Python ==========
+
+    private void pythonLine() {
+        int first = skipSpace(from);
+
+        // ^\s*class\s+(\w+)
+        if (literalAt(first, "class") && spaceAt(first + 5)) {
+            int start = skipSpace(first + 5);
+            int end = wordEndFrom(start);
+            if (end > start) add(substring(start, end), "Class");
+        }
+
+        // ^\s*def\s+(\w+)\s*\(
+        if (literalAt(first, "def") && spaceAt(first + 3)) {
+            int start = skipSpace(first + 3);
+            int end = wordEndFrom(start);
+            if (end > start && charIs(skipSpace(end), '(')) add(substring(start, end), "Method");
+        }
+
+        // ^\s*(\w+)\s*=\s*
+        int end = wordEndFrom(first);
+        if (end > first && charIs(skipSpace(end), '=')) addUnlessExcluded(substring(first, end), "Variable");
+    }
+
+    // ========== JavaScript ==========
+
+    private void javaScriptLine() {
+        // \bclass\s+(\w+)
+        int cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor) continue;
+            int name = keywordName(k, "class");
+            if (name >= 0) {
+                addUnlessExcluded(word(name), "Class");
+                cursor = wordEnd[name];
+            }
+        }
+
+        // \bfunction\s+(\w+)\s*\(
+        cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor) continue;
+            int name = keywordName(k, "function");
+            if (name < 0) continue;
+            int paren = skipSpace(wordEnd[name]);
+            if (charIs(paren, '(')) {
+                addUnlessExcluded(word(name), "Method");
+                cursor = paren + 1;
+            }
+        }
+
+        // \b(?:const|let|var)\s+(\w+)\s*=\s*\([^)]*\)\s*=>
+        cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor || !isJavaScriptDeclaration(k)) continue;
+            int name = nextWordAfterSpace(k);
+            if (name < 0) continue;
+            int equals = skipSpace(wordEnd[name]);
+            if (!charIs(equals, '=')) continue;
+            int open = skipSpace(equals + 1);
+            if (!charIs(open, '(')) continue;
+            int close = indexOf(')', open + 1);
+            if (close < 0) continue;
+            int arrow = skipSpace(close + 1);
+            if (literalAt(arrow, "=>")) {
+                addUnlessExcluded(word(name), "Method");
+                cursor = arrow + 2;
+            }
+        }
+
+        // \b(?:let|const|var)\s+(\w+)\b
+        cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor || !isJavaScriptDeclaration(k)) continue;
+            int name = nextWordAfterSpace(k);
+            if (name >= 0 && !wordCharAt(wordEnd[name])) {
+                addUnlessExcluded(word(name), "Variable");
+                cursor = wordEnd[name];
+            }
+        }
+    }
+
+    private boolean isJavaScriptDeclaration(int k) {
+        return (wordIs(k, "const") || wordIs(k, "let") || wordIs(k, "var")) && boundaryBefore(k);
+    }
+
+    // ========== C/C++ ==========
+
+    private void cppLine() {
+        int first = skipSpace(from);
+
+        // ^\s*#include\s+[<"](\w+)
+        if (literalAt(first, "#include") && spaceAt(first + 8)) {
+            int quote = skipSpace(first + 8);
+            if (charIs(quote, '<') || charIs(quote, '"')) {
+                int end = wordEndFrom(quote + 1);
+                if (end > quote + 1) add(substring(quote + 1, end), "Include");
+            }
+        }
+
+        // ^\s*#define\s+(\w+)
+        if (literalAt(first, "#define") && spaceAt(first + 7)) {
+            int start = skipSpace(first + 7);
+            int end = wordEndFrom(start);
+            if (end > start) add(substring(start, end), "Macro");
+        }
+
+        // \bstruct\s+(\w+), \bclass\s+(\w+), \benum\s+(\w+)   (first only)
+        addFirstKeywordName("struct", "Struct");
+        addFirstKeywordName("class", "Class");
+        addFirstKeywordName("enum", "Enum");
+
+        // \btypedef\s+\w+\s+(\w+)   (first only)
+        for (int k = 0; k < words; k++) {
+            if (!wordIs(k, "typedef") || !boundaryBefore(k)) continue;
+            int type = nextWordAfterSpace(k);
+            int name = type < 0 ? -1 : nextWordAfterSpace(type);
+            if (name >= 0) {
+                add(word(name), "Typedef");
+                break;
+            }
+        }
+
+        // \bunion\s+(\w+), \bnamespace\s+(\w+)   (first only)
+        addFirstKeywordName("union", "Union");
+        addFirstKeywordName("namespace", "Namespace");
+
+        // \btemplate\s*<[^>]+>\s*(class|typename)?\s*(\w+)?   (first only, "T" without a name)
+        for (int k = 0; k < words; k++) {
+            if (!wordIs(k, "template") || !boundaryBefore(k)) continue;
+            int open = skipSpace(wordEnd[k]);
+            if (!charIs(open, '<')) continue;
+            int close = indexOf('>', open + 1);
+            if (close < open + 2) continue;
+            int start = skipSpace(close + 1);
+            if (literalAt(start, "class")) start = skipSpace(start + 5);
+            else if (literalAt(start, "typename")) start = skipSpace(start + 8);
+            int end = wordEndFrom(start);
+            add(end > start ? substring(start, end) : "T", "Template");
+            break;
+        }
+
+        // \b(\w+)\s+(\w+)\s*\(
+        int cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor || !boundaryBefore(k)) continue;
+            int name = nextWordAfterSpace(k);
+            if (name < 0) continue;
+            int paren = skipSpace(wordEnd[name]);
+            if (charIs(paren, '(')) {
+                addUnlessExcluded(word(name), "Function");
+                cursor = paren + 1;
+            }
+        }
+
+        // \b(\w+)\s+(\w+)\s*(=\s*[^;]+)?;
+        cursor = from;
+        for (int k = 0; k < words; k++) {
+            if (wordStart[k] < cursor || !boundaryBefore(k)) continue;
+            int name = nextWordAfterSpace(k);
+            if (name < 0) continue;
+            int next = skipSpace(wordEnd[name]);
+            int end = -1;
+            if (charIs(next, ';')) {
+                end = next + 1;
+            } else if (charIs(next, '=')) {
+                int semicolon = indexOf(';', next + 1);
+                if (semicolon > next + 1) end = semicolon + 1;
+            }
+            if (end >= 0) {
+                addUnlessExcluded(word(name), "Variable");
+                cursor = end;
+            }
+        }
+    }
+
+    private void addFirstKeywordName(String keyword, String type) {
+        for (int k = 0; k < words; k++) {
+            int name = keywordName(k, keyword);
+            if (name >= 0) {
+                add(word(name), type);
+                return;
+            }
+        }
+    }
+
+    // ========== Lexing helpers ==========
+
+    private void tokenize() {
+        words = 0;
+        int i = from;
+        while (i < to) {
+            if (!isWordChar(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < to && isWordChar(text.charAt(i))) i++;
+            if (words == wordStart.length) {
+                wordStart = Arrays.copyOf(wordStart, words * 2);
+                wordEnd = Arrays.copyOf(wordEnd, words * 2);
+            }
+            wordStart[words] = start;
+            wordEnd[words] = i;
+            words++;
+        }
+    }
+
+    // Index of the word that follows word k after at least one whitespace character, or -1
+    private int nextWordAfterSpace(int k) {
+        int end = wordEnd[k];
+        if (k + 1 >= words || !spaceAt(end)) return -1;
+        return wordStart[k + 1] == skipSpace(end) ? k + 1 : -1;
+    }
+
+    // For "\bkeyword name": index of the name word when word k is the keyword, or -1
+    private int keywordName(int k, String keyword) {
+        return wordIs(k, keyword) && boundaryBefore(k) ? nextWordAfterSpace(k) : -1;
+    }
+
+    // True when \b matches at the start of word k. The character before a word is never an
+    // ASCII word character, but may be another letter or digit.
+    private boolean boundaryBefore(int k) {
+        int start = wordStart[k];
+        return start == from || !isRegexWordChar(Character.codePointBefore(text, start), start - 1);
+    }
+
+    // True when the character at index is a word character to \b
+    private boolean wordCharAt(int index) {
+        return index < to && isRegexWordChar(Character.codePointAt(text, index), index);
+    }
+
+    // Word characters of \b in java.util.regex: letters, digits and '_', and a non-spacing
+    // mark that follows a letter or digit (through further marks). index is the position of c.
+    private boolean isRegexWordChar(int c, int index) {
+        if (c == '_' || Character.isLetterOrDigit(c)) return true;
+        if (Character.getType(c) != Character.NON_SPACING_MARK) return false;
+        for (int i = index; i >= from; i--) {
+            int base = Character.codePointAt(text, i);
+            if (Character.isLetterOrDigit(base)) return true;
+            if (Character.getType(base) != Character.NON_SPACING_MARK) return false;
+        }
+        return false;
+    }
+
+    private boolean wordIs(int k, String value) {
+        return wordEnd[k] - wordStart[k] == value.length() && literalAt(wordStart[k], value);
+    }
+
+    private String word(int k) {
+        return substring(wordStart[k], wordEnd[k]);
+    }
+
+    private String substring(int start, int end) {
+        return text.subSequence(start, end).toString();
+    }
+
+    private boolean literalAt(int index, String value) {
+        if (index + value.length() > to) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (text.charAt(index + i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean charIs(int index, char c) {
+        return index < to && text.charAt(index) == c;
+    }
+
+    private boolean spaceAt(int index) {
+        return index < to && isSpace(text.charAt(index));
+    }
+
+    private int skipSpace(int index) {
+        while (index < to && isSpace(text.charAt(index))) index++;
+        return index;
+    }
+
+    private int wordEndFrom(int index) {
+        while (index < to && isWordChar(text.charAt(index))) index++;
+        return index;
+    }
+
+    // Where a '.' span starting at index stops: lines end at \n and \r, but '.' does not match
+    // U+0085, U+2028 or U+2029 either
+    private int dotEnd(int index) {
+        while (index < to && !isLineTerminator(text.charAt(index))) index++;
+        return index;
+    }
+
+    private int indexOf(char c, int index) {
+        for (int i = index; i < to; i++) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private void add(String name, String type) {
+        entities.add(new String[]{name, type});
+    }
+
+    private void addUnlessExcluded(String name, String type) {
+        if (!ComprehensibilityScoreCalculator.isExcludedVariable(name)) add(name, type);
+    }
+
+    // Character classes of the regexes: \s, \w and the sets used for names and types
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isPackageChar(char c) {
+        return isWordChar(c) || c == '.';
+    }
+
+    private static boolean isGenericTypeChar(char c) {
+        return isWordChar(c) || c == '<' || c == '>' || c == ',';
+    }
+
+    private static boolean isCSharpTypeChar(char c) {
+        return isGenericTypeChar(c) || isSpace(c);
+    }
+}
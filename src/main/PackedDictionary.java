@@ -0,0 +1,215 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+// Precompiled dictionary that is memory-mapped instead of parsed, so startup does not
+// allocate a String per word. Built from a word list with DictionaryCompiler.
+//
+// Layout (big-endian):
+//   int  magic, int wordCount, int contentHash, int trigramCount, int dataLength
+//   int[wordCount + 1]  start offset of each word in the data block
+//   long[trigramCount]  sorted trigram keys of all words (see trigramKey)
+//   byte[dataLength]    UTF-8 words, sorted by unsigned byte order
+//   BloomFilter         over all words (see BloomFilter.write); absent in older files
+class PackedDictionary implements WordDictionary {
+    static final int MAGIC = 0x43534431; // "CSD1"
+    private static final int HEADER_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int wordCount;
+    private final int contentHash;
+    private final int trigramCount;
+    private final int offsetsStart;
+    private final int trigramsStart;
+    private final int dataStart;
+    private final BloomFilter filter;
+
+    private PackedDictionary(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled dictionary");
+        }
+        wordCount = buffer.getInt(4);
+        contentHash = buffer.getInt(8);
+        trigramCount = buffer.getInt(12);
+        int dataLength = buffer.getInt(16);
+        offsetsStart = HEADER_SIZE;
+        trigramsStart = offsetsStart + 4 * (wordCount + 1);
+        dataStart = trigramsStart + 8 * trigramCount;
+        if (wordCount < 0 || trigramCount < 0 || (long) dataStart + dataLength > buffer.capacity()) {
+            throw new IOException("Corrupt compiled dictionary");
+        }
+        filter = dataStart + dataLength < buffer.capacity() ? BloomFilter.read(buffer, dataStart + dataLength) : null;
+    }
+
+    // Maps a compiled dictionary file into memory
+    static PackedDictionary open(String filePath) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            return new PackedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Checks the magic number without mapping the file
+    static boolean isPacked(String filePath) {
+        File file = new File(filePath);
+        if (!file.isFile() || file.length() < HEADER_SIZE) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Writes words (already normalized) in the compiled format
+    static void write(Collection<String> words, String filePath) throws IOException {
+        byte[][] encoded = new byte[words.size()][];
+        int n = 0;
+        int contentHash = 0;
+        for (String word : words) {
+            encoded[n++] = word.getBytes(StandardCharsets.UTF_8);
+            contentHash += word.hashCode();
+        }
+        Arrays.sort(encoded, PackedDictionary::compareBytes);
+
+        BloomFilter filter = new BloomFilter(words.size());
+        words.forEach(filter::add);
+
+        long[] trigrams = sortedTrigrams(words);
+
+        int dataLength = 0;
+        for (byte[] word : encoded) dataLength += word.length;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(encoded.length);
+            out.writeInt(contentHash);
+            out.writeInt(trigrams.length);
+            out.writeInt(dataLength);
+            int offset = 0;
+            for (byte[] word : encoded) {
+                out.writeInt(offset);
+                offset += word.length;
+            }
+            out.writeInt(offset);
+            for (long key : trigrams) out.writeLong(key);
+            for (byte[] word : encoded) out.write(word);
+            filter.write(out);
+        }
+    }
+
+    @Override
+    public boolean contains(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = wordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareToWord(mid, key);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsTrigram(String word, int index) {
+        long key = trigramKey(word, index);
+        int low = 0;
+        int high = trigramCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(trigramsStart + 8 * mid);
+            if (value < key) low = mid + 1;
+            else if (value > key) high = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return wordCount;
+    }
+
+    @Override
+    public void forEachWord(Consumer<String> action) {
+        for (int i = 0; i < wordCount; i++) {
+            int start = buffer.getInt(offsetsStart + 4 * i);
+            byte[] word = new byte[buffer.getInt(offsetsStart + 4 * (i + 1)) - start];
+            buffer.get(dataStart + start, word);
+            action.accept(new String(word, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public int contentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public BloomFilter wordFilter() {
+        return filter;
+    }
+
+    // Collects the distinct trigram keys of all words in ascending order
+    private static long[] sortedTrigrams(Collection<String> words) {
+        int total = 0;
+        for (String word : words) total += Math.max(0, word.length() - 2);
+        long[] keys = new long[total];
+        int n = 0;
+        for (String word : words) {
+            for (int i = 0; i <= word.length() - 3; i++) {
+                keys[n++] = trigramKey(word, i);
+            }
+        }
+        Arrays.sort(keys);
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (distinct == 0 || keys[i] != keys[distinct - 1]) keys[distinct++] = keys[i];
+        }
+        return Arrays.copyOf(keys, distinct);
+    }
+
+    // Packs three UTF-16 chars into one sortable key
+    private static long trigramKey(String word, int index) {
+        return ((long) word.charAt(index) << 32) | ((long) word.charAt(index + 1) << 16) | word.charAt(index + 2);
+    }
+
+    // Compares the stored word at position i with key, both as unsigned bytes
+    private int compareToWord(int i, byte[] key) {
+        int start = dataStart + buffer.getInt(offsetsStart + 4 * i);
+        int end = dataStart + buffer.getInt(offsetsStart + 4 * (i + 1));
+        int length = end - start;
+        int common = Math.min(length, key.length);
+        for (int k = 0; k < common; k++) {
+            int cmp = (buffer.get(start + k) & 0xff) - (key[k] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return length - key.length;
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int common = Math.min(a.length, b.length);
+        for (int k = 0; k < common; k++) {
+            int cmp = (a[k] & 0xff) - (b[k] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return a.length - b.length;
+    }
+}
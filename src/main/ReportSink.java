@@ -0,0 +1,38 @@
+package main;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+// Destination of the per-file results of a run, written in a single pass in walk order
+interface ReportSink extends Closeable {
+    // Report formats selectable with --format
+    enum Format {
+        CSV("csv"),
+        JSON_LINES("jsonl"),
+        COLUMNAR("columnar"),
+        ROLLUP("rollup");
+
+        final String label;
+
+        Format(String label) {
+            this.label = label;
+        }
+
+        static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.label.equalsIgnoreCase(name)) return format;
+            }
+            return null;
+        }
+    }
+
+    // Appends the results of a single-file result store
+    void writeFile(File file, EntityStore results) throws IOException;
+
+    // Completes the report after the last file
+    void finish() throws IOException;
+
+    // Tells where the finished report went; a report rewritten in place (--watch) stays quiet
+    void announce();
+}
@@ -0,0 +1,202 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rollup report (--format rollup): a ScoreSummary of the whole run and of every language,
+// entity type, module and directory, one row each in Comprehensibility_Rollup.csv:
+//   Level,Key,Files,Entities,File Average,Mean,Min,P10,P50,P90,Max,Well Readable,Moderate Readable,Non Readable
+// File Average is the mean of the file averages (as in the summary report), Mean the mean of
+// the entity scores. Entity type rows leave the file columns empty.
+//
+// Directory rows are hierarchical: a directory covers every file below it, from the deepest
+// directory that holds all files downwards, parents before children. A file's module is the
+// nearest directory with a build file (pom.xml, build.gradle, package.json, a .csproj, ...).
+// While files stream in, each directory only summarizes its own files; the summaries are
+// merged into their ancestors when the run finishes. Memory grows with the number of
+// directories, never with the number of entities.
+final class RollupReportWriter implements ReportSink {
+    static final String FILE_NAME = "Comprehensibility_Rollup.csv";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final Path CURRENT_DIRECTORY = Paths.get("");
+
+    private static final String[] MODULE_FILES = {
+        "pom.xml", "build.gradle", "build.gradle.kts", "package.json", "pyproject.toml", "setup.py", "CMakeLists.txt"
+    };
+
+    private final String fileName;
+    private final ScoreSummary total = new ScoreSummary();
+    private final Map<Language, ScoreSummary> languages = new EnumMap<>(Language.class);
+    private final ScoreSummary[] types = new ScoreSummary[EntityStore.TYPES.length];
+    // Summaries of the files directly in each directory, and of the files of each module
+    private final Map<Path, ScoreSummary> directories = new HashMap<>();
+    private final Map<Path, ScoreSummary> modules = new HashMap<>();
+    private final ScoreSummary withoutModule = new ScoreSummary();
+    // Nearest module directory of each directory looked at; null values mean none
+    private final Map<Path, Path> moduleOf = new HashMap<>();
+    // Deepest directory holding every file so far; null once files share no directory
+    private Path commonRoot;
+    private boolean first = true;
+
+    RollupReportWriter(String directory) {
+        File outputDir = new File(directory);
+        if (!outputDir.exists()) outputDir.mkdirs();
+        fileName = new File(outputDir, FILE_NAME).getPath();
+    }
+
+    @Override
+    public void writeFile(File file, EntityStore results) {
+        ScoreSummary summary = new ScoreSummary();
+        summary.addFile(results.fileAverage(0));
+        for (int i = results.fileStart(0); i < results.fileEnd(0); i++) {
+            summary.add(results.score(i), results.readabilityCode(i));
+            byte type = results.typeCode(i);
+            if (types[type] == null) types[type] = new ScoreSummary();
+            types[type].add(results.score(i), results.readabilityCode(i));
+        }
+
+        total.merge(summary);
+        Language language = languageOf(file.getName());
+        if (language != null) languages.computeIfAbsent(language, l -> new ScoreSummary()).merge(summary);
+
+        Path directory = parentOf(file.toPath());
+        directories.computeIfAbsent(directory, d -> new ScoreSummary()).merge(summary);
+        Path module = moduleOf(directory);
+        if (module != null) modules.computeIfAbsent(module, m -> new ScoreSummary()).merge(summary);
+        else withoutModule.merge(summary);
+
+        if (first) {
+            commonRoot = directory;
+            first = false;
+        } else {
+            while (commonRoot != null && !directory.startsWith(commonRoot)) commonRoot = parentOf(commonRoot);
+        }
+    }
+
+    private static Language languageOf(String fileName) {
+        for (Language language : Language.values()) {
+            if (language.matches(fileName)) return language;
+        }
+        return null;
+    }
+
+    // Directory of a path; a relative path without one is in the current directory
+    private static Path parentOf(Path path) {
+        if (path.equals(CURRENT_DIRECTORY)) return null;
+        Path parent = path.getParent();
+        if (parent == null && !path.isAbsolute()) return CURRENT_DIRECTORY;
+        return parent;
+    }
+
+    private Path moduleOf(Path directory) {
+        if (moduleOf.containsKey(directory)) return moduleOf.get(directory);
+        Path module;
+        if (isModuleRoot(directory)) {
+            module = directory;
+        } else {
+            Path parent = parentOf(directory);
+            module = parent == null ? null : moduleOf(parent);
+        }
+        moduleOf.put(directory, module);
+        return module;
+    }
+
+    private static boolean isModuleRoot(Path directory) {
+        File dir = directory.equals(CURRENT_DIRECTORY) ? new File(".") : directory.toFile();
+        for (String name : MODULE_FILES) {
+            if (new File(dir, name).isFile()) return true;
+        }
+        String[] projects = dir.list((d, name) -> name.endsWith(".csproj"));
+        return projects != null && projects.length > 0;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Each directory's own files count for it and every ancestor up to the common root
+        Map<Path, ScoreSummary> rollups = new HashMap<>();
+        for (Map.Entry<Path, ScoreSummary> entry : directories.entrySet()) {
+            for (Path directory = entry.getKey(); directory != null; directory = parentOf(directory)) {
+                rollups.computeIfAbsent(directory, d -> new ScoreSummary()).merge(entry.getValue());
+                if (directory.equals(commonRoot)) break;
+            }
+        }
+
+        StringBuilder row = new StringBuilder(256);
+        try (Writer out = new BufferedWriter(new FileWriter(fileName), 1 << 16)) {
+            out.write("Level,Key,Files,Entities,File Average,Mean,Min,P10,P50,P90,Max,"
+                      + "Well Readable,Moderate Readable,Non Readable");
+            out.write(LINE_SEPARATOR);
+            writeRow(out, row, "Total", "All files", total, true);
+            for (Map.Entry<Language, ScoreSummary> entry : languages.entrySet()) {
+                writeRow(out, row, "Language", entry.getKey().displayName, entry.getValue(), true);
+            }
+            for (int type = 0; type < types.length; type++) {
+                if (types[type] != null) writeRow(out, row, "Entity Type", EntityStore.TYPES[type], types[type], false);
+            }
+            for (Path module : sorted(modules)) {
+                writeRow(out, row, "Module", display(module), modules.get(module), true);
+            }
+            if (withoutModule.files() > 0) writeRow(out, row, "Module", "(none)", withoutModule, true);
+            for (Path directory : sorted(rollups)) {
+                writeRow(out, row, "Directory", display(directory), rollups.get(directory), true);
+            }
+        }
+    }
+
+    // Parents before their children, siblings by name
+    private static List<Path> sorted(Map<Path, ScoreSummary> summaries) {
+        List<Path> paths = new ArrayList<>(summaries.keySet());
+        paths.sort((a, b) -> {
+            int names = Math.min(a.getNameCount(), b.getNameCount());
+            for (int i = 0; i < names; i++) {
+                int c = a.getName(i).toString().compareTo(b.getName(i).toString());
+                if (c != 0) return c;
+            }
+            if (a.getNameCount() != b.getNameCount()) return Integer.compare(a.getNameCount(), b.getNameCount());
+            return a.toString().compareTo(b.toString());
+        });
+        return paths;
+    }
+
+    private static String display(Path directory) {
+        return directory.equals(CURRENT_DIRECTORY) ? "." : directory.toString();
+    }
+
+    private static void writeRow(Writer out, StringBuilder row, String level, String key,
+                                 ScoreSummary summary, boolean perFile) throws IOException {
+        row.setLength(0);
+        row.append(level).append(',').append(key).append(',');
+        if (perFile) row.append(summary.files());
+        row.append(',').append(summary.count()).append(',');
+        if (perFile) ComprehensibilityScoreCalculator.appendScore(row, summary.fileAverage());
+        for (double value : new double[]{summary.mean(), summary.min(), summary.quantile(0.1),
+                                         summary.quantile(0.5), summary.quantile(0.9), summary.max()}) {
+            row.append(',');
+            ComprehensibilityScoreCalculator.appendScore(row, value);
+        }
+        for (byte code = 0; code < EntityStore.READABILITY.length; code++) {
+            row.append(',').append(summary.readabilityCount(code));
+        }
+        row.append(LINE_SEPARATOR);
+        out.append(row);
+    }
+
+    @Override
+    public void announce() {
+        System.out.println("Rollup report generated: " + fileName);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,210 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+// Estimate of the average comprehensibility score (the mean of the file averages) from a
+// stratified random sample of files, one stratum per language. Each stratum's mean is
+// weighted by its share of the files:
+//   estimate = sum_h W_h * mean_h,   W_h = N_h / N
+//   SE^2     = sum_h W_h^2 * (1 - n_h / N_h) * s_h^2 / n_h
+// When the entities of the sampled files are sampled too, a file's average is itself an
+// estimate; the finite population correction (1 - n_h / N_h) is then left out, so the spread
+// between file averages also covers the spread within files. A stratum with a single sampled
+// file uses 0.25, the largest variance of values in [0, 1]. Intervals use Student's t, with
+// Welch-Satterthwaite degrees of freedom for the overall estimate.
+final class SampleEstimate {
+    static final String FILE_NAME = "Sample_Comprehensibility_Report.csv";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final double MAX_VARIANCE = 0.25;
+
+    // Two-sided 95% quantiles of Student's t for 1 to 30 degrees of freedom
+    private static final double[] T_95 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    private final String[] names;
+    private final long[] population;
+    private final boolean entitiesSampled;
+    private final long[] sampled;
+    private final long[] entitiesScored;
+    // Running mean and sum of squared deviations of the file averages (Welford)
+    private final double[] mean;
+    private final double[] m2;
+
+    SampleEstimate(String[] names, long[] population, boolean entitiesSampled) {
+        this.names = names;
+        this.population = population;
+        this.entitiesSampled = entitiesSampled;
+        sampled = new long[names.length];
+        entitiesScored = new long[names.length];
+        mean = new double[names.length];
+        m2 = new double[names.length];
+    }
+
+    void add(int stratum, double fileAverage, int entities) {
+        sampled[stratum]++;
+        entitiesScored[stratum] += entities;
+        double delta = fileAverage - mean[stratum];
+        mean[stratum] += delta / sampled[stratum];
+        m2[stratum] += delta * (fileAverage - mean[stratum]);
+    }
+
+    long populationSize() {
+        long total = 0;
+        for (long n : population) total += n;
+        return total;
+    }
+
+    long sampleSize() {
+        long total = 0;
+        for (long n : sampled) total += n;
+        return total;
+    }
+
+    long entitiesScored() {
+        long total = 0;
+        for (long n : entitiesScored) total += n;
+        return total;
+    }
+
+    // Files of the strata that have a sample; the estimate covers only these
+    long coveredPopulation() {
+        long total = 0;
+        for (int h = 0; h < names.length; h++) {
+            if (sampled[h] > 0) total += population[h];
+        }
+        return total;
+    }
+
+    // Variance of the stratum mean
+    private double meanVariance(int h) {
+        long n = sampled[h];
+        if (!entitiesSampled && n == population[h]) return 0.0;
+        double variance = n > 1 ? m2[h] / (n - 1) : MAX_VARIANCE;
+        double correction = entitiesSampled ? 1.0 : 1.0 - (double) n / population[h];
+        return correction * variance / n;
+    }
+
+    double estimate() {
+        double covered = coveredPopulation();
+        double total = 0.0;
+        for (int h = 0; h < names.length; h++) {
+            if (sampled[h] > 0) total += population[h] / covered * mean[h];
+        }
+        return covered == 0 ? 0.0 : total;
+    }
+
+    double standardError() {
+        double covered = coveredPopulation();
+        double variance = 0.0;
+        for (int h = 0; h < names.length; h++) {
+            if (sampled[h] == 0) continue;
+            double weight = population[h] / covered;
+            variance += weight * weight * meanVariance(h);
+        }
+        return Math.sqrt(variance);
+    }
+
+    // Half width of the 95% interval of the estimate
+    double margin() {
+        double covered = coveredPopulation();
+        double numerator = 0.0;
+        double denominator = 0.0;
+        for (int h = 0; h < names.length; h++) {
+            if (sampled[h] == 0) continue;
+            double weight = population[h] / covered;
+            double part = weight * weight * meanVariance(h);
+            numerator += part;
+            if (sampled[h] > 1) denominator += part * part / (sampled[h] - 1);
+            else if (part > 0) denominator += part * part;
+        }
+        if (numerator == 0.0) return 0.0;
+        double degrees = denominator == 0.0 ? Double.POSITIVE_INFINITY : numerator * numerator / denominator;
+        return tQuantile(degrees) * Math.sqrt(numerator);
+    }
+
+    private double stratumMargin(int h) {
+        double variance = meanVariance(h);
+        return variance == 0.0 ? 0.0 : tQuantile(Math.max(1, sampled[h] - 1)) * Math.sqrt(variance);
+    }
+
+    // 95% quantile of Student's t; beyond the table the Cornish-Fisher expansion around the
+    // normal quantile, accurate to 0.001 from 30 degrees of freedom on
+    static double tQuantile(double degrees) {
+        if (degrees < 1) degrees = 1;
+        if (degrees <= T_95.length) return T_95[(int) Math.floor(degrees) - 1];
+        double z = 1.959964;
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        return z + (z3 + z) / (4 * degrees) + (5 * z5 + 16 * z3 + 3 * z) / (96 * degrees * degrees);
+    }
+
+    // Prints the estimate with its interval and the estimate of every sampled stratum
+    void print(long elapsedNanos) {
+        long files = populationSize();
+        long sample = sampleSize();
+        System.out.printf("Sampled %d of %d files (%.1f%%), %d entities scored, in %d ms%n", sample, files,
+                files == 0 ? 0.0 : 100.0 * sample / files, entitiesScored(), elapsedNanos / 1_000_000);
+        double estimate = estimate();
+        double margin = margin();
+        System.out.printf("Estimated Average Comprehensibility Score: %.2f (95%% confidence interval %.2f - %.2f)%n",
+                estimate, Math.max(0.0, estimate - margin), Math.min(1.0, estimate + margin));
+        for (int h = 0; h < names.length; h++) {
+            if (sampled[h] == 0) {
+                System.out.printf("  %s: not sampled (%d files)%n", names[h], population[h]);
+                continue;
+            }
+            double stratumMargin = stratumMargin(h);
+            System.out.printf("  %s: %.2f (%.2f - %.2f), %d of %d files%n", names[h], mean[h],
+                    Math.max(0.0, mean[h] - stratumMargin), Math.min(1.0, mean[h] + stratumMargin),
+                    sampled[h], population[h]);
+        }
+        if (coveredPopulation() < files) {
+            System.out.println("The estimate covers only the sampled languages; allow more time to sample all.");
+        }
+    }
+
+    // One row for all files, then one per stratum
+    void write(String directory) throws IOException {
+        File outputDir = new File(directory);
+        if (!outputDir.exists()) outputDir.mkdirs();
+        String fileName = new File(outputDir, FILE_NAME).getPath();
+
+        StringBuilder row = new StringBuilder(128);
+        try (Writer out = new BufferedWriter(new FileWriter(fileName))) {
+            out.write("Stratum,Files,Sampled Files,Scored Entities,Estimated Average,Standard Error,95% CI Low,95% CI High");
+            out.write(LINE_SEPARATOR);
+            writeRow(out, row, "All files", populationSize(), sampleSize(), entitiesScored(),
+                     estimate(), standardError(), margin());
+            for (int h = 0; h < names.length; h++) {
+                if (sampled[h] == 0) continue;
+                writeRow(out, row, names[h], population[h], sampled[h], entitiesScored[h],
+                         mean[h], Math.sqrt(meanVariance(h)), stratumMargin(h));
+            }
+        }
+        System.out.println("Sample report generated: " + fileName);
+    }
+
+    private static void writeRow(Writer out, StringBuilder row, String name, long files, long sampled,
+                                 long entities, double estimate, double standardError, double margin)
+            throws IOException {
+        row.setLength(0);
+        row.append(name).append(',').append(files).append(',').append(sampled).append(',').append(entities);
+        row.append(',');
+        ComprehensibilityScoreCalculator.appendScore(row, estimate);
+        // Standard errors are often below the report's two decimals
+        row.append(',').append(String.format("%.4f", standardError));
+        for (double bound : new double[]{Math.max(0.0, estimate - margin), Math.min(1.0, estimate + margin)}) {
+            row.append(',');
+            ComprehensibilityScoreCalculator.appendScore(row, bound);
+        }
+        row.append(LINE_SEPARATOR);
+        out.append(row);
+    }
+}
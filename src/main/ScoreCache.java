@@ -0,0 +1,127 @@
+package main;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Size-bounded, thread-safe LRU cache of readability scores keyed by identifier or word.
+// The keys are spread over independently locked segments so parallel workers rarely contend.
+class ScoreCache {
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // One access-ordered map per segment; the eldest entry is dropped once the segment is full
+    private static class Segment extends LinkedHashMap<String, Double> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Double> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    // A maximum size of 0 disables the cache
+    ScoreCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            segments = new Segment[0];
+            return;
+        }
+        int perSegment = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    boolean isEnabled() {
+        return segments.length > 0;
+    }
+
+    // Returns the cached score, or null when the key is not cached
+    Double get(String key) {
+        if (segments.length == 0) return null;
+        Segment segment = segmentFor(key);
+        Double score;
+        synchronized (segment) {
+            score = segment.get(key);
+        }
+        if (score == null) misses.increment();
+        else hits.increment();
+        return score;
+    }
+
+    void put(String key, double score) {
+        if (segments.length == 0) return;
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, score);
+        }
+    }
+
+    long hitCount() {
+        return hits.sum();
+    }
+
+    long missCount() {
+        return misses.sum();
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    // Writes the entries as a count followed by (key, score) pairs
+    void save(DataOutputStream out) throws IOException {
+        List<String> keys = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Map.Entry<String, Double> entry : segment.entrySet()) {
+                    keys.add(entry.getKey());
+                    scores.add(entry.getValue());
+                }
+            }
+        }
+        out.writeInt(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            out.writeUTF(keys.get(i));
+            out.writeDouble(scores.get(i));
+        }
+    }
+
+    // Reads entries written by save; entries beyond the capacity are evicted as usual
+    void load(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = in.readUTF();
+            double score = in.readDouble();
+            put(key, score);
+        }
+    }
+
+    private Segment segmentFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
+    }
+}
@@ -0,0 +1,96 @@
+package main;
+
+// Fixed-size summary of a stream of entity scores: count, sum, min and max, a quantile sketch
+// and a histogram of the readability categories, plus the number and summed averages of the
+// files the entities came from. Two summaries merge into the summary of both streams, so
+// rollups (a directory and everything below it) are built by merging instead of rescanning.
+//
+// Scores lie in [0, 1] and are reported with two decimals, so the sketch is a histogram of
+// 101 buckets, one per reported value. A quantile read from it equals the exact quantile
+// rounded to two decimals, at a fixed 101 longs however many scores were added; general-purpose
+// sketches (KLL, t-digest) would only add rank error in this bounded domain.
+final class ScoreSummary {
+    private static final int BUCKETS = 101;
+
+    private long count = 0;
+    private double sum = 0.0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final long[] buckets = new long[BUCKETS];
+    private final long[] readability = new long[EntityStore.READABILITY.length];
+    private long files = 0;
+    private double fileAverageSum = 0.0;
+
+    void add(double score, byte readabilityCode) {
+        count++;
+        sum += score;
+        if (score < min) min = score;
+        if (score > max) max = score;
+        buckets[bucket(score)]++;
+        readability[readabilityCode]++;
+    }
+
+    // Counts a file whose entities were (or will be) added, with its average
+    void addFile(double average) {
+        files++;
+        fileAverageSum += average;
+    }
+
+    void merge(ScoreSummary other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        for (int b = 0; b < BUCKETS; b++) buckets[b] += other.buckets[b];
+        for (int r = 0; r < readability.length; r++) readability[r] += other.readability[r];
+        files += other.files;
+        fileAverageSum += other.fileAverageSum;
+    }
+
+    private static int bucket(double score) {
+        return (int) Math.max(0, Math.min(BUCKETS - 1, Math.round(score * 100)));
+    }
+
+    long count() {
+        return count;
+    }
+
+    long files() {
+        return files;
+    }
+
+    // Mean entity score; 0 without entities, like a file without entities
+    double mean() {
+        return count == 0 ? 0.0 : sum / count;
+    }
+
+    // Mean of the file averages, as in the summary report
+    double fileAverage() {
+        return files == 0 ? 0.0 : fileAverageSum / files;
+    }
+
+    double min() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    double max() {
+        return count == 0 ? 0.0 : max;
+    }
+
+    // Nearest-rank quantile (0 < q <= 1) to two decimals: the smallest score with at least
+    // q * count scores at or below it
+    double quantile(double q) {
+        if (count == 0) return 0.0;
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets[b];
+            if (seen >= rank) return b / 100.0;
+        }
+        return 1.0;
+    }
+
+    long readabilityCount(byte code) {
+        return readability[code];
+    }
+}
@@ -0,0 +1,232 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+// Comprehensibility scoring for use inside other programs, without the CSV reports. A Scorer
+// is built once from a dictionary and can then be shared by any number of threads: the
+// dictionary is read-only, the score caches are thread-safe and extraction uses per-call
+// state with per-thread read buffers. A SourceAnalysis holds only its own declarations, and
+// the only state kept between calls is the score caches, bounded by the cache size, so a
+// Scorer can live as long as its host process without growing.
+//
+//   Scorer scorer = Scorer.load(Paths.get("dictionary.txt"));
+//   double score = scorer.scoreIdentifier("parseHttpHeader");
+//   SourceAnalysis analysis = scorer.analyzeSource(code, Language.JAVA);
+public final class Scorer {
+    static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    // Abbreviations and short words that count as readable even when the dictionary lacks them
+    static final Set<String> BUILTIN_READABLES = new HashSet<>(Arrays.asList(
+        "id", "url", "api", "http", "ip", "sql", "xml", "json", "db", "cpu", "gpu","https",
+        "uid", "eid", "cid", "pid", "rid", "nid", "tid",
+        "msg", "desc","dest", "txt", "str", "val",
+        "cmd", "opt", "arg", "flag",
+        "pwd", "usr", "auth", "sess",
+        "req", "res", "resp", "conn",
+        "mem", "ram", "rom", "os", "fs",
+        "io", "ui", "ux", "dbg",
+        "svc", "cfg", "lib", "mod",
+        "img", "btn", "nav", "ctrl", "alt", "hdr", "tbl", "src",
+        // two‐letter prepositions:
+        "as", "at", "by", "in", "of", "on", "to", "up",
+        "is","are","was","were","am","for","with",
+        "tmp", "num", "max", "min", "len", "err", "val",
+        // Data structures
+        "list", "map", "set", "arr", "dict", "queue", "stack", "node", "elem",
+        // Time-related terms
+        "time", "date", "epoch", "timestamp", "delay", "interval",
+        // Security-related terms
+        "key", "token", "salt", "hash", "enc", "cert", "auth", "ssl", "rsa", "aes",
+        // Common variable terms
+        "temp",
+        // Common error handling terms
+        "err",
+        // Common database terms
+        "sql", "db"
+    ));
+
+    // Dictionary, built-in readables and glossaries, merged into one lookup structure
+    private final LayeredDictionary dictionary;
+    // Prefix tree for splitting run-together words ("filename" -> file + name); null when off
+    private final DictionaryTrie segmenter;
+    // Memoized scores: the same identifiers and words recur thousands of times in a codebase
+    final ScoreCache entityCache;
+    final ScoreCache wordCache;
+    // Counters of the command-line run; null when embedded
+    private final AnalysisStats stats;
+
+    Scorer(WordDictionary dictionary, int cacheSize, AnalysisStats stats, boolean segmentWords) {
+        this(LayeredDictionary.of(dictionary), cacheSize, stats, segmentWords);
+    }
+
+    Scorer(LayeredDictionary dictionary, int cacheSize, AnalysisStats stats, boolean segmentWords) {
+        this.dictionary = dictionary;
+        this.segmenter = segmentWords ? buildSegmenter(dictionary) : null;
+        this.entityCache = new ScoreCache(cacheSize);
+        this.wordCache = new ScoreCache(cacheSize);
+        this.stats = stats;
+    }
+
+    // Builds a scorer from a plain-text or compiled (see DictionaryCompiler) dictionary
+    public static Scorer load(Path dictionaryFile) throws IOException {
+        return load(dictionaryFile, DEFAULT_CACHE_SIZE);
+    }
+
+    // As load(Path), keeping at most cacheSize identifier and word scores (0 disables caching)
+    public static Scorer load(Path dictionaryFile, int cacheSize) throws IOException {
+        return load(dictionaryFile, cacheSize, false);
+    }
+
+    // As load(Path, int); with segmentWords, a word made of several dictionary words run
+    // together ("getuserbyid") scores like a dictionary word
+    public static Scorer load(Path dictionaryFile, int cacheSize, boolean segmentWords) throws IOException {
+        return load(dictionaryFile, Collections.<Path>emptyList(), cacheSize, segmentWords);
+    }
+
+    // As load(Path, int, boolean), with glossary files layered on top of the dictionary in the
+    // given order: each adds words, or withdraws them with "!word" (see LayeredDictionary)
+    public static Scorer load(Path dictionaryFile, List<Path> glossaryFiles, int cacheSize, boolean segmentWords)
+            throws IOException {
+        if (cacheSize < 0) throw new IllegalArgumentException("cacheSize must be >= 0");
+        List<String> glossaries = new ArrayList<>();
+        for (Path file : glossaryFiles) glossaries.add(file.toString());
+        LayeredDictionary dictionary = LayeredDictionary.load(openDictionary(dictionaryFile.toString()), glossaries);
+        return new Scorer(dictionary, cacheSize, null, segmentWords);
+    }
+
+    static WordDictionary openDictionary(String filePath) throws IOException {
+        if (PackedDictionary.isPacked(filePath)) return PackedDictionary.open(filePath);
+        return TextDictionary.load(filePath);
+    }
+
+    // Score of one identifier between 0 and 1: the mean score of its words
+    public double scoreIdentifier(String identifier) {
+        Objects.requireNonNull(identifier, "identifier");
+
+        // The score depends only on the name, so it is cached by name
+        Double cached = entityCache.get(identifier);
+        if (cached != null) return cached;
+
+        // For Package / Class / Method / Variable, use camelCase & punctuation split rules
+        double totalScore = 0.0;
+        int validCount = 0;
+
+        int end;
+        for (int start = 0; start < identifier.length(); start = end) {
+            if (IdentifierTokenizer.isSeparator(identifier.charAt(start))) {
+                end = start + 1;
+                continue;
+            }
+            end = IdentifierTokenizer.wordEnd(identifier, start);
+
+            // Pure numbers carry no meaning and are skipped
+            if (IdentifierTokenizer.isNumber(identifier, start, end)) {
+                continue;
+            }
+
+            totalScore += scoreWord(identifier.substring(start, end).toLowerCase());
+            validCount++;
+        }
+
+        double score = validCount == 0 ? 0.0 : totalScore / validCount;
+        entityCache.put(identifier, score);
+        return score;
+    }
+
+    // Extracts the declarations of a source file and scores them
+    public SourceAnalysis analyzeFile(Path file, Language language) throws IOException {
+        List<String[]> entities = language.lexerExtractor.extract(file.toString());
+        return new SourceAnalysis(language, score(entities));
+    }
+
+    // Extracts the declarations of in-memory source code and scores them
+    public SourceAnalysis analyzeSource(CharSequence source, Language language) {
+        Objects.requireNonNull(source, "source");
+        return new SourceAnalysis(language, score(LexerExtractor.extract(source, language)));
+    }
+
+    // Scores extracted [name, type] entities into a single-file result store
+    EntityStore score(List<String[]> entities) {
+        EntityStore results = new EntityStore(entities.size());
+        results.beginFile();
+        for (String[] entity : entities) {
+            results.add(entity[0], entity[1], scoreIdentifier(entity[0]));
+        }
+        return results;
+    }
+
+    // Built-in readable tokens, glossary words and full dictionary words score 1, partial
+    // matches 0.5. With segmentation on, a word that splits completely into dictionary words
+    // also scores 1; the segmenter holds exactly the readable words, so its walk replaces the
+    // dictionary lookup instead of adding to it.
+    double scoreWord(String word) {
+        String lowerWord = word.toLowerCase();
+
+        Double cached = wordCache.get(lowerWord);
+        if (cached != null) return cached;
+
+        double score;
+        if (segmenter != null ? isSegmentable(lowerWord) : isReadable(lowerWord)) score = 1.0;
+        else score = getPartialMatchScore(word);
+
+        wordCache.put(lowerWord, score);
+        return score;
+    }
+
+    // A Bloom filter, when the dictionary has one, settles most words that are not readable
+    // without the exact lookups
+    private boolean isReadable(String lowercaseWord) {
+        if (!dictionary.mightBeReadable(lowercaseWord)) {
+            if (stats != null) stats.filteredLookups.increment();
+            return false;
+        }
+        if (stats != null) stats.dictionaryLookups.increment();
+        return dictionary.isReadable(lowercaseWord);
+    }
+
+    // A word without a dictionary prefix ends the walk at its first characters, so gibberish
+    // costs about as little as a Bloom filter check
+    private boolean isSegmentable(String lowercaseWord) {
+        if (stats != null) stats.segmentationScans.increment();
+        return segmenter.segments(lowercaseWord);
+    }
+
+    // Segments are the readable words: dictionary words of at least 3 characters (as for full
+    // matches), the built-in readables and glossary words, so "getuserbyid" splits into
+    // get + user + by + id
+    private static DictionaryTrie buildSegmenter(LayeredDictionary dictionary) {
+        List<String> words = new ArrayList<>(dictionary.base().size() + BUILTIN_READABLES.size());
+        dictionary.forEachReadable(words::add);
+        return DictionaryTrie.build(words);
+    }
+
+    private double getPartialMatchScore(String word) {
+        String lowercaseWord = word.toLowerCase();
+        if (lowercaseWord.length() < 3) return 0.0;
+        if (stats != null) stats.partialMatchScans.increment();
+
+        // A substring of the word occurs in some dictionary word exactly when it is in the trigram index
+        for (int i = 0; i <= lowercaseWord.length() - 3; i++) {
+            if (stats != null) stats.trigramProbes.increment();
+            if (dictionary.containsTrigram(lowercaseWord, i)) {
+                return 0.5;
+            }
+        }
+        return 0.0;
+    }
+
+    // Identifies the dictionary that persisted scores were computed with
+    long fingerprint() {
+        long h = dictionary.fingerprint();
+        if (segmenter != null) h = 31 * h + 1;
+        return h;
+    }
+}
@@ -0,0 +1,116 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Thin client for the scoring server (--serve): sends files or standard input to the running
+// server and prints its JSON answer, so hooks avoid loading the dictionary themselves. The
+// request token is read from the file the server wrote it to (--token-file, by default the
+// one for the port).
+// Usage: java -cp ComprehensibilityScoreCalculator.jar main.ScoringClient [--port N] [--token-file F] [--lang L] file...
+//        java -cp ComprehensibilityScoreCalculator.jar main.ScoringClient [--port N] [--token-file F] --lang L -   (source on stdin)
+// Exits with 1 when the server cannot be reached or rejects the request.
+public class ScoringClient {
+    private static final String USAGE =
+        "Usage: java -cp ComprehensibilityScoreCalculator.jar main.ScoringClient [--port N] [--token-file F] [--lang L] file... | --lang L -";
+
+    public static void main(String[] args) {
+        int port = ScoringServer.DEFAULT_PORT;
+        String language = null;
+        String tokenFile = null;
+        boolean stdin = false;
+        StringBuilder query = new StringBuilder();
+
+        for (int a = 0; a < args.length; a++) {
+            String arg = args[a];
+            if (arg.equals("-")) {
+                stdin = true;
+            } else if (!arg.startsWith("--")) {
+                // The server resolves paths itself, so send them absolute
+                query.append(query.length() == 0 ? "" : "&").append("path=")
+                     .append(encode(new File(arg).getAbsolutePath()));
+            } else if (a + 1 >= args.length) {
+                System.err.println("Missing value for " + arg);
+                System.err.println(USAGE);
+                System.exit(1);
+            } else if (arg.equals("--port")) {
+                try {
+                    port = Integer.parseInt(args[++a]);
+                } catch (NumberFormatException e) {
+                    System.err.println("--port expects a number.");
+                    System.exit(1);
+                }
+            } else if (arg.equals("--lang")) {
+                language = args[++a];
+            } else if (arg.equals("--token-file")) {
+                tokenFile = args[++a];
+            } else {
+                System.err.println("Unknown option: " + arg);
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+        }
+        if (stdin == (query.length() > 0) || (stdin && language == null)) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (language != null) {
+            query.append(query.length() == 0 ? "" : "&").append("lang=").append(encode(language));
+        }
+
+        Path token = tokenFile != null ? Paths.get(tokenFile) : ScoringServer.defaultTokenFile(port);
+        String bearer;
+        try {
+            bearer = new String(Files.readAllBytes(token), StandardCharsets.US_ASCII).trim();
+        } catch (IOException e) {
+            System.err.println("Error reading the server token from " + token + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        try {
+            URL url = new URL("http://127.0.0.1:" + port + "/analyze?" + query);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Authorization", "Bearer " + bearer);
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                if (stdin) System.in.transferTo(out);
+            }
+
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            String response = body == null ? "" : new String(readAll(body), StandardCharsets.UTF_8);
+            if (status != 200) {
+                System.err.print(response);
+                System.exit(1);
+            }
+            System.out.print(response);
+        } catch (IOException e) {
+            System.err.println("Error contacting the scoring server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            input.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+}
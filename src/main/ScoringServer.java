@@ -0,0 +1,265 @@
+package main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Keeps a loaded Scorer in a long-running process and serves it over HTTP on the loopback
+// interface, so a pre-commit hook scores a few files without a JVM start and a dictionary
+// load per call. Requests are handled concurrently by a fixed pool of threads.
+// Requests must name the server as 127.0.0.1:<port> or localhost:<port> in their Host header;
+// any other host is refused, so a web page cannot reach the server through DNS rebinding.
+// Loopback is open to every local user, so /analyze also requires "Authorization: Bearer
+// <token>" with a random token the server writes at start to a file only its owner can read
+// (--token-file, by default ~/.comprehensibility/server-<port>.token), and path= only reads
+// files below the directories the server was started with.
+//
+//   POST /analyze?path=/abs/A.java&path=/abs/b.py    files, language by extension (or lang=)
+//   POST /analyze?lang=java   (source in the body)   inline source
+//   GET  /health
+//
+// Responses are JSON: {"files": [{"path", "language", "averageScore", "entities": [...]}]}
+// with one {"name", "type", "score", "readability"} object per declaration. A file that
+// cannot be analyzed gets an "error" member instead of its scores.
+final class ScoringServer {
+    static final int DEFAULT_PORT = 7431;
+
+    private final Scorer scorer;
+    private final HttpServer server;
+    // Directories whose files path= may name, as real paths
+    private final List<Path> roots;
+    private final Path tokenFile;
+    private final byte[] token;
+
+    ScoringServer(Scorer scorer, int port, int threads, List<Path> roots, Path tokenFile) throws IOException {
+        this.scorer = scorer;
+        this.roots = new ArrayList<>();
+        for (Path root : roots) this.roots.add(root.toRealPath());
+        this.tokenFile = tokenFile;
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.token = HexFormat.of().formatHex(secret).getBytes(StandardCharsets.US_ASCII);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/analyze", this::handleAnalyze);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "scoring-server");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    // Writes the token file and starts accepting requests; returns immediately
+    void start() throws IOException {
+        writeTokenFile(tokenFile, token);
+        tokenFile.toFile().deleteOnExit();
+        server.start();
+    }
+
+    static Path defaultTokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"), ".comprehensibility", "server-" + port + ".token");
+    }
+
+    // Creates the file afresh with owner-only permissions, so neither an older file nor a link
+    // planted in its place is written through
+    private static void writeTokenFile(Path file, byte[] token) throws IOException {
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null && !Files.isDirectory(directory)) {
+            if (posix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, token);
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    // Refuses a request whose Host header names anything but this server on the loopback
+    // interface; a browser sends the rebound name of the page's site there
+    private boolean checkHost(HttpExchange exchange) throws IOException {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        int port = port();
+        if (host != null && (host.equalsIgnoreCase("127.0.0.1:" + port) || host.equalsIgnoreCase("localhost:" + port))) {
+            return true;
+        }
+        respond(exchange, 403, error("Host must be 127.0.0.1:" + port + " or localhost:" + port));
+        return false;
+    }
+
+    // Refuses a request without the token of the token file; compared in constant time
+    private boolean checkToken(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null && authorization.startsWith("Bearer ")
+                && MessageDigest.isEqual(token, authorization.substring(7).trim().getBytes(StandardCharsets.US_ASCII))) {
+            return true;
+        }
+        respond(exchange, 401, error("Send \"Authorization: Bearer <token>\" with the token from " + tokenFile));
+        return false;
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        if (!checkHost(exchange)) return;
+        respond(exchange, 200, "{\"status\": \"ok\"}\n");
+    }
+
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        try {
+            if (!checkHost(exchange) || !checkToken(exchange)) return;
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, error("Use POST /analyze"));
+                return;
+            }
+
+            List<String> paths = new ArrayList<>();
+            String languageName = null;
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    int eq = parameter.indexOf('=');
+                    if (eq < 0) continue;
+                    String name = decode(parameter.substring(0, eq));
+                    String value = decode(parameter.substring(eq + 1));
+                    if (name.equals("path")) paths.add(value);
+                    else if (name.equals("lang")) languageName = value;
+                }
+            }
+
+            Language language = null;
+            if (languageName != null) {
+                language = Language.fromName(languageName);
+                if (language == null) {
+                    respond(exchange, 400, error("Unsupported language: " + languageName));
+                    return;
+                }
+            }
+
+            StringBuilder json = new StringBuilder("{\"files\": [");
+            if (paths.isEmpty()) {
+                if (language == null) {
+                    respond(exchange, 400, error("Give path parameters, or lang and the source as the body"));
+                    return;
+                }
+                String source = new String(readBody(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                appendAnalysis(json, null, scorer.analyzeSource(source, language));
+            } else {
+                for (int i = 0; i < paths.size(); i++) {
+                    if (i > 0) json.append(',');
+                    appendFile(json, paths.get(i), language);
+                }
+            }
+            json.append("\n]}\n");
+            respond(exchange, 200, json.toString());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling request: " + e);
+            respond(exchange, 500, error(String.valueOf(e.getMessage())));
+        }
+    }
+
+    private void appendFile(StringBuilder json, String path, Language language) {
+        if (language == null) {
+            for (Language candidate : Language.values()) {
+                if (candidate.matches(path)) {
+                    language = candidate;
+                    break;
+                }
+            }
+        }
+        if (language == null) {
+            json.append("\n{\"path\": ").append(Json.string(path))
+                .append(", \"error\": \"Unsupported file type\"}");
+            return;
+        }
+        try {
+            Path file = Paths.get(path).toRealPath();
+            if (!isServed(file)) {
+                json.append("\n{\"path\": ").append(Json.string(path))
+                    .append(", \"error\": \"Outside the directories this server was started with\"}");
+                return;
+            }
+            appendAnalysis(json, path, scorer.analyzeFile(file, language));
+        } catch (IOException e) {
+            json.append("\n{\"path\": ").append(Json.string(path))
+                .append(", \"error\": ").append(Json.string("Error reading file: " + e.getMessage())).append('}');
+        }
+    }
+
+    // Symbolic links and ".." are resolved before the check, so neither leads out of a root
+    private boolean isServed(Path realFile) {
+        for (Path root : roots) {
+            if (realFile.startsWith(root)) return true;
+        }
+        return false;
+    }
+
+    private static void appendAnalysis(StringBuilder json, String path, SourceAnalysis analysis) {
+        json.append("\n{");
+        if (path != null) json.append("\"path\": ").append(Json.string(path)).append(", ");
+        json.append("\"language\": ").append(Json.string(analysis.language().displayName()))
+            .append(", \"averageScore\": ").append(analysis.averageScore())
+            .append(", \"entities\": [");
+        List<EntityScore> entities = analysis.entities();
+        for (int i = 0; i < entities.size(); i++) {
+            EntityScore entity = entities.get(i);
+            json.append(i == 0 ? "\n  " : ",\n  ")
+                .append("{\"name\": ").append(Json.string(entity.name()))
+                .append(", \"type\": ").append(Json.string(entity.type()))
+                .append(", \"score\": ").append(entity.score())
+                .append(", \"readability\": ").append(Json.string(entity.readability())).append('}');
+        }
+        json.append(entities.isEmpty() ? "]}" : "\n]}");
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + Json.string(message) + "}\n";
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        in.transferTo(body);
+        return body.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
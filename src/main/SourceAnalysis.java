@@ -0,0 +1,44 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.List;
+
+// Scored declarations of one source file or snippet, as returned by Scorer. Immutable; the
+// entity objects are created on access from the compact result store.
+public final class SourceAnalysis {
+    private final Language language;
+    private final EntityStore results;
+    private final List<EntityScore> entities;
+
+    SourceAnalysis(Language language, EntityStore results) {
+        this.language = language;
+        this.results = results;
+        this.entities = new AbstractList<EntityScore>() {
+            @Override
+            public EntityScore get(int index) {
+                int i = results.fileStart(0) + index;
+                if (index < 0 || i >= results.fileEnd(0)) throw new IndexOutOfBoundsException("Index: " + index);
+                return new EntityScore(results.name(i), results.type(i), results.score(i), results.readability(i));
+            }
+
+            @Override
+            public int size() {
+                return results.fileEnd(0) - results.fileStart(0);
+            }
+        };
+    }
+
+    public Language language() {
+        return language;
+    }
+
+    // Declarations in source order
+    public List<EntityScore> entities() {
+        return entities;
+    }
+
+    // Mean score of all declarations, 0 when there are none (the "Class Average" of the report)
+    public double averageScore() {
+        return results.fileAverage(0);
+    }
+}
@@ -0,0 +1,128 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+// Reads a whole source file into per-thread reusable buffers and decodes it in one step, so
+// scanning many small files does not allocate a reader, a byte array and a String per line.
+// Large files are memory-mapped instead of copied. Content is decoded as UTF-8; files that are
+// not valid UTF-8 are decoded with the platform charset, as FileReader does.
+final class SourceBuffer {
+    // Files at least this large are mapped rather than read into the pooled byte buffer
+    private static final int MAP_THRESHOLD = 1 << 22;
+    // Pooled buffers never grow beyond this; larger files get a one-off char buffer
+    private static final int MAX_POOLED_CHARS = 1 << 22;
+
+    private static final ThreadLocal<SourceBuffer> POOL = ThreadLocal.withInitial(SourceBuffer::new);
+
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private final CharsetDecoder fallback = Charset.defaultCharset().newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(16 * 1024);
+    private CharBuffer chars = CharBuffer.allocate(16 * 1024);
+
+    private SourceBuffer() {
+    }
+
+    static SourceBuffer forCurrentThread() {
+        return POOL.get();
+    }
+
+    // Returns the decoded file content; it stays valid until this thread reads the next file
+    CharBuffer read(String filePath) throws IOException {
+        return read(filePath, null);
+    }
+
+    // As read(String), also feeding the bytes that are decoded to digest (unless null), so a
+    // hash describes exactly the content that was analyzed
+    CharBuffer read(String filePath, MessageDigest digest) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("File too large: " + filePath);
+
+            ByteBuffer input;
+            if (size >= MAP_THRESHOLD) {
+                input = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                input = readFully(channel, (int) size);
+            }
+            if (digest != null) digest.update(input.duplicate());
+
+            return decodeSource(input);
+        }
+    }
+
+    // Decodes content that is already in memory, such as a blob from git, the same way as read
+    CharBuffer decode(byte[] content) {
+        return decodeSource(ByteBuffer.wrap(content));
+    }
+
+    private CharBuffer decodeSource(ByteBuffer input) {
+        CharBuffer content = decode(utf8, input);
+        if (content == null) {
+            input.rewind();
+            content = decode(fallback, input);
+        }
+        return content;
+    }
+
+    // Reads until end of file; the size is only a hint since the file may still be growing
+    private ByteBuffer readFully(FileChannel channel, int sizeHint) throws IOException {
+        if (bytes.capacity() <= sizeHint) bytes = ByteBuffer.allocate(sizeHint + 1);
+        bytes.clear();
+        while (channel.read(bytes) >= 0) {
+            if (!bytes.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+                bytes.flip();
+                larger.put(bytes);
+                bytes = larger;
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    // Decodes all of input, or returns null when a REPORT decoder hits invalid input
+    private CharBuffer decode(CharsetDecoder decoder, ByteBuffer input) {
+        int estimate = (int) Math.min(Integer.MAX_VALUE - 8, (long) (input.remaining() * (double) decoder.maxCharsPerByte()) + 16);
+        CharBuffer output = charBuffer(estimate);
+        decoder.reset();
+        while (true) {
+            CoderResult result = decoder.decode(input, output, true);
+            if (result.isUnderflow()) result = decoder.flush(output);
+            if (result.isUnderflow()) break;
+            if (result.isError()) return null;
+            output = grow(output);
+        }
+        output.flip();
+        return output;
+    }
+
+    private CharBuffer charBuffer(int capacity) {
+        if (capacity > MAX_POOLED_CHARS) return CharBuffer.allocate(capacity);
+        if (chars.capacity() < capacity) chars = CharBuffer.allocate(capacity);
+        chars.clear();
+        return chars;
+    }
+
+    private CharBuffer grow(CharBuffer output) {
+        CharBuffer larger = CharBuffer.allocate(output.capacity() * 2);
+        output.flip();
+        larger.put(output);
+        if (larger.capacity() <= MAX_POOLED_CHARS) chars = larger;
+        return larger;
+    }
+}
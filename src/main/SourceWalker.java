@@ -0,0 +1,204 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+
+// Walks a source tree once with Files.walkFileTree and hands every file with one of the
+// requested extensions to a handler as soon as it is found. Directories and files matching
+// the exclude rules are skipped; symbolic links are followed, but link cycles are skipped.
+//
+// Exclude rules use a .gitignore-like syntax:
+//   name or glob      matches a file or directory name at any depth (e.g. *.min.js)
+//   path/with/slash   matches relative to the walked root (a leading '/' is allowed)
+//   trailing '/'      matches directories only (e.g. node_modules/)
+//   **/               matches at any depth; '#' starts a comment. Negation ('!') is not supported.
+class SourceWalker {
+    // Directories that hold VCS metadata, dependencies or build output rather than project sources
+    static final List<String> DEFAULT_EXCLUDES = Arrays.asList(
+        ".git/", ".hg/", ".svn/", "node_modules/", "build/", "vendor/");
+
+    interface FileHandler {
+        void accept(File file) throws IOException;
+    }
+
+    interface DirectoryHandler {
+        void accept(Path directory) throws IOException;
+    }
+
+    private static class ExcludeRule {
+        final PathMatcher matcher;
+        final boolean anchored;
+        final boolean anyDepth;
+        final boolean directoryOnly;
+
+        ExcludeRule(PathMatcher matcher, boolean anchored, boolean anyDepth, boolean directoryOnly) {
+            this.matcher = matcher;
+            this.anchored = anchored;
+            this.anyDepth = anyDepth;
+            this.directoryOnly = directoryOnly;
+        }
+
+        boolean matches(Path relative) {
+            if (!anchored) return matcher.matches(relative.getFileName());
+            if (!anyDepth) return matcher.matches(relative);
+            // "**/a/b" may start at any directory level
+            for (int i = 0; i < relative.getNameCount(); i++) {
+                if (matcher.matches(relative.subpath(i, relative.getNameCount()))) return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<String> extensions;
+    private final List<ExcludeRule> excludes = new ArrayList<>();
+
+    SourceWalker(Collection<String> extensions, Collection<String> excludePatterns) {
+        this.extensions = new ArrayList<>(extensions);
+        for (String pattern : excludePatterns) {
+            ExcludeRule rule = parseRule(pattern);
+            if (rule != null) excludes.add(rule);
+        }
+    }
+
+    // Reads exclude patterns from a .gitignore-style file
+    static List<String> readPatterns(String filePath) throws IOException {
+        List<String> patterns = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                patterns.add(line);
+            }
+        }
+        return patterns;
+    }
+
+    // Reports the file itself, or every matching file below the directory; returns the number found
+    int walk(String path, FileHandler handler) throws IOException {
+        Path start = Paths.get(path);
+        return walk(start, start, handler);
+    }
+
+    // As walk(String, FileHandler) for start inside the walked root, with the exclude rules
+    // applied relative to root
+    int walk(Path root, Path start, FileHandler handler) throws IOException {
+        String path = start.toString();
+        if (Files.isRegularFile(start)) {
+            if (!hasExtension(start)) return 0;
+            handler.accept(start.toFile());
+            return 1;
+        }
+        if (!Files.isDirectory(start)) {
+            System.err.println("Path not found: " + path);
+            return 0;
+        }
+
+        int[] found = {0};
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+            new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && isExcluded(root.relativize(dir), true)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && hasExtension(file) && !isExcluded(root.relativize(file), false)) {
+                        handler.accept(file.toFile());
+                        found[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    // Symlink cycles are expected in some trees; other failures are reported and skipped
+                    if (!(e instanceof FileSystemLoopException)) {
+                        System.err.println("Skipping " + file + ": " + e.getMessage());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        return found[0];
+    }
+
+    // Reports start and every directory below it that the exclude rules (relative to root) keep
+    void walkDirectories(Path root, Path start, DirectoryHandler handler) throws IOException {
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+            new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(root) && isExcluded(root.relativize(dir), true)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    handler.accept(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+    }
+
+    // True when a walk of root would report file (whose directory it does not exclude)
+    boolean accepts(Path root, Path file) {
+        return hasExtension(file) && !isExcluded(root.relativize(file), false);
+    }
+
+    private boolean hasExtension(Path file) {
+        String name = file.getFileName().toString();
+        for (String ext : extensions) {
+            if (name.endsWith(ext)) return true;
+        }
+        return false;
+    }
+
+    private boolean isExcluded(Path relative, boolean directory) {
+        for (ExcludeRule rule : excludes) {
+            if (rule.directoryOnly && !directory) continue;
+            if (rule.matches(relative)) return true;
+        }
+        return false;
+    }
+
+    private static ExcludeRule parseRule(String line) {
+        String pattern = line.trim();
+        if (pattern.isEmpty() || pattern.startsWith("#") || pattern.startsWith("!")) return null;
+
+        boolean directoryOnly = pattern.endsWith("/");
+        if (directoryOnly) pattern = pattern.substring(0, pattern.length() - 1);
+        boolean anyDepth = false;
+        while (pattern.startsWith("**/")) {
+            pattern = pattern.substring(3);
+            anyDepth = true;
+        }
+
+        boolean anchored = pattern.startsWith("/") || pattern.contains("/");
+        if (pattern.startsWith("/")) pattern = pattern.substring(1);
+        if (pattern.isEmpty()) return null;
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        return new ExcludeRule(matcher, anchored, anyDepth, directoryOnly);
+    }
+}
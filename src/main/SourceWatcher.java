@@ -0,0 +1,158 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Reports the source files that change below the watched paths (--watch), using the platform
+// file watcher (inotify on Linux; the JDK polls on macOS, so changes arrive there after a few
+// seconds). Every directory a walk would enter is registered, and directories created later
+// are registered as they appear. Events are collected until the tree has been quiet for
+// QUIET_MILLIS, so an editor's save (temporary file, rename, attribute change) or a branch
+// switch is reported as one batch of paths, each once. A path in a batch may have been
+// modified, created or deleted; the caller checks which.
+final class SourceWatcher implements Closeable {
+    static final long QUIET_MILLIS = 50;
+
+    // Paths changed since the previous batch, in the order first seen
+    static final class Changes {
+        final Set<Path> files = new LinkedHashSet<>();
+        // Watched directories that were deleted or moved away, with whatever they held
+        final Set<Path> removedDirectories = new LinkedHashSet<>();
+        // Events were lost; only a new walk of the paths tells what changed
+        boolean overflow;
+    }
+
+    // A registered directory and the walked path it belongs to; root is null for the
+    // directory of a path given as a single file
+    private static final class Watched {
+        final Path directory;
+        final Path root;
+
+        Watched(Path directory, Path root) {
+            this.directory = directory;
+            this.root = root;
+        }
+    }
+
+    private final SourceWalker walker;
+    private final WatchService service;
+    private final Map<WatchKey, Watched> watched = new HashMap<>();
+    // Keys of the directories of the walked trees, by directory
+    private final Map<Path, WatchKey> treeKeys = new HashMap<>();
+    // Paths given as single files, by absolute path
+    private final Map<Path, Path> singleFiles = new HashMap<>();
+
+    SourceWatcher(SourceWalker walker, List<String> paths) throws IOException {
+        this.walker = walker;
+        service = FileSystems.getDefault().newWatchService();
+        try {
+            for (String path : paths) {
+                Path start = Paths.get(path);
+                if (Files.isRegularFile(start)) {
+                    Path file = start.toAbsolutePath();
+                    singleFiles.put(file, start);
+                    register(file.getParent(), null);
+                } else if (Files.isDirectory(start)) {
+                    walker.walkDirectories(start, start, directory -> register(directory, start));
+                }
+            }
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+    }
+
+    private void register(Path directory, Path root) throws IOException {
+        WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        // A directory holding a single-file path that is also inside a watched tree keeps the tree
+        if (root != null || !watched.containsKey(key)) watched.put(key, new Watched(directory, root));
+        if (root != null) treeKeys.put(directory, key);
+    }
+
+    // Stops watching a tree directory and everything below it. A directory moved out of the
+    // tree keeps its watch (the directory still exists), so its deletion event is the only sign.
+    private void unregister(Path directory, Changes changes) {
+        Iterator<Map.Entry<Path, WatchKey>> entries = treeKeys.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, WatchKey> entry = entries.next();
+            if (!entry.getKey().startsWith(directory)) continue;
+            entry.getValue().cancel();
+            watched.remove(entry.getValue());
+            entries.remove();
+        }
+        changes.removedDirectories.add(directory);
+    }
+
+    // Blocks until something changes, then returns everything that changed until the tree was
+    // quiet for QUIET_MILLIS
+    Changes awaitChanges() throws IOException, InterruptedException {
+        Changes changes = new Changes();
+        WatchKey key = service.take();
+        while (key != null) {
+            collect(key, changes);
+            key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return changes;
+    }
+
+    private void collect(WatchKey key, Changes changes) throws IOException {
+        Watched directory = watched.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changes.overflow = true;
+                continue;
+            }
+            if (directory == null) continue;
+            Path path = directory.directory.resolve((Path) event.context());
+
+            if (directory.root == null) {
+                Path file = singleFiles.get(path.toAbsolutePath());
+                if (file != null) changes.files.add(file);
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && treeKeys.containsKey(path)) {
+                unregister(path, changes);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // A directory moved or unpacked into the tree arrives with its files already in it
+                addDirectory(directory.root, path, changes);
+            } else if (walker.accepts(directory.root, path)) {
+                changes.files.add(path);
+            }
+        }
+        if (!key.reset() && directory != null && watched.containsKey(key)) {
+            if (directory.root != null) unregister(directory.directory, changes);
+            else watched.remove(key);
+        }
+    }
+
+    private void addDirectory(Path root, Path directory, Changes changes) throws IOException {
+        List<Path> added = new ArrayList<>();
+        walker.walkDirectories(root, directory, added::add);
+        if (added.isEmpty()) return;
+        for (Path subdirectory : added) register(subdirectory, root);
+        // Files created before the registration sent no event; the set drops those that did
+        walker.walk(root, directory, file -> changes.files.add(file.toPath()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+}
@@ -0,0 +1,79 @@
+package main;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Dictionary read from a plain word-per-line text file into hash sets
+class TextDictionary implements WordDictionary {
+    private final Set<String> words;
+
+    // Every 3-character substring of every dictionary word, built once so partial matching
+    // does not have to scan the whole dictionary for each unknown word
+    private final Set<String> trigrams;
+
+    TextDictionary(Set<String> words) {
+        this.words = words;
+        this.trigrams = buildTrigramIndex(words);
+    }
+
+    static TextDictionary empty() {
+        return new TextDictionary(Collections.<String>emptySet());
+    }
+
+    // Reads one word per line, trimmed and lower-cased
+    static TextDictionary load(String filePath) throws IOException {
+        Set<String> words = new HashSet<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                words.add(line.trim().toLowerCase());
+            }
+        }
+        return new TextDictionary(words);
+    }
+
+    Set<String> words() {
+        return Collections.unmodifiableSet(words);
+    }
+
+    @Override
+    public boolean contains(String word) {
+        return words.contains(word);
+    }
+
+    @Override
+    public boolean containsTrigram(String word, int index) {
+        return trigrams.contains(word.substring(index, index + 3));
+    }
+
+    @Override
+    public int size() {
+        return words.size();
+    }
+
+    @Override
+    public void forEachWord(Consumer<String> action) {
+        words.forEach(action);
+    }
+
+    @Override
+    public int contentHash() {
+        return words.hashCode();
+    }
+
+    // Collects all 3-grams of dictionary words (length >= 3) for partial-match lookups
+    private static Set<String> buildTrigramIndex(Set<String> dictionary) {
+        Set<String> trigrams = new HashSet<>();
+        for (String dictWord : dictionary) {
+            for (int i = 0; i <= dictWord.length() - 3; i++) {
+                trigrams.add(dictWord.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+}
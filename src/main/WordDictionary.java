@@ -0,0 +1,25 @@
+package main;
+
+import java.util.function.Consumer;
+
+// Read-only set of lower-cased dictionary words used for scoring
+interface WordDictionary {
+
+    boolean contains(String word);
+
+    // True when the three characters of word starting at index occur in some dictionary word
+    boolean containsTrigram(String word, int index);
+
+    int size();
+
+    // Visits every word once, in no particular order
+    void forEachWord(Consumer<String> action);
+
+    // Same value as Set.hashCode() over the words, so equal word lists hash equally in every format
+    int contentHash();
+
+    // A Bloom filter over all words kept with the dictionary, or null when it has none
+    default BloomFilter wordFilter() {
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Reads the columnar report back following the layout documented in ColumnarReportWriter and
+// checks every value against the detailed CSV written by the same run
+class ColumnarReportWriterTest {
+    @TempDir
+    Path output;
+
+    @Test
+    void columnsMatchDetailedCsv() throws IOException {
+        ComprehensibilityScoreCalculator.main(new String[] {
+            "--all-languages", "--format", "csv,columnar", "--output", output.toString(),
+            "--dictionary", "dictionary.txt", "TestFiles"});
+
+        List<String> rows = Files.readAllLines(output.resolve("Detailed_Comprehensibility_Report.csv"));
+        File columns = output.resolve(ColumnarReportWriter.FILE_NAME).toFile();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(columns)))) {
+            assertEquals(0x43535231, in.readInt());
+            assertEquals(2, in.readInt());
+            String[] types = new String[in.readInt()];
+            for (int i = 0; i < types.length; i++) types[i] = in.readUTF();
+            String[] readability = new String[in.readInt()];
+            for (int i = 0; i < readability.length; i++) readability[i] = in.readUTF();
+            int fileCount = in.readInt();
+            int entityCount = in.readInt();
+
+            String[] paths = readStrings(in, fileCount);
+            int[] firstEntity = new int[fileCount + 1];
+            assertEquals(4L * (fileCount + 1), in.readLong());
+            for (int f = 0; f <= fileCount; f++) firstEntity[f] = in.readInt();
+            double[] averages = new double[fileCount];
+            assertEquals(8L * fileCount, in.readLong());
+            for (int f = 0; f < fileCount; f++) averages[f] = in.readDouble();
+            int[] entityFile = new int[entityCount];
+            assertEquals(4L * entityCount, in.readLong());
+            for (int e = 0; e < entityCount; e++) entityFile[e] = in.readInt();
+            String[] names = readStrings(in, entityCount);
+            byte[] typeCodes = new byte[entityCount];
+            assertEquals(entityCount, in.readLong());
+            in.readFully(typeCodes);
+            double[] scores = new double[entityCount];
+            assertEquals(8L * entityCount, in.readLong());
+            for (int e = 0; e < entityCount; e++) scores[e] = in.readDouble();
+            byte[] readabilityCodes = new byte[entityCount];
+            assertEquals(entityCount, in.readLong());
+            in.readFully(readabilityCodes);
+            assertEquals(-1, in.read(), "bytes left after the last column");
+
+            // One file row plus one row per entity, in the same order as the CSV
+            assertEquals(1 + fileCount + entityCount, rows.size());
+            int row = 1;
+            for (int f = 0; f < fileCount; f++) {
+                assertEquals(paths[f] + ",AVERAGE VALUE: " + score(averages[f]) + ",,,,", rows.get(row++));
+                for (int e = firstEntity[f]; e < firstEntity[f + 1]; e++) {
+                    assertEquals(f, entityFile[e]);
+                    assertEquals(",," + names[e] + "," + types[typeCodes[e]] + "," + score(scores[e])
+                        + "," + readability[readabilityCodes[e]], rows.get(row++));
+                }
+            }
+            assertEquals(entityCount, firstEntity[fileCount]);
+        }
+    }
+
+    // A strings column: its length, count + 1 offsets starting at 0, then the UTF-8 bytes
+    private static String[] readStrings(DataInputStream in, int count) throws IOException {
+        long length = in.readLong();
+        long[] offsets = new long[count + 1];
+        for (int i = 0; i <= count; i++) offsets[i] = in.readLong();
+        assertEquals(0L, offsets[0]);
+        assertEquals(8L * (count + 1) + offsets[count], length);
+        byte[] bytes = new byte[(int) offsets[count]];
+        in.readFully(bytes);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = new String(bytes, (int) offsets[i], (int) (offsets[i + 1] - offsets[i]), StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static String score(double value) {
+        StringBuilder out = new StringBuilder();
+        ComprehensibilityScoreCalculator.appendScore(out, value);
+        return out.toString();
+    }
+}
@@ -0,0 +1,23 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class GitDiffAnalysisTest {
+    @Test
+    void averageChangeNeverPrintsNegativeZero() {
+        assertEquals(String.format("%.2f", 0.0), change(-0.001));
+        assertEquals(String.format("%.2f", 0.0), change(-0.0049));
+        assertEquals(String.format("%.2f", 0.0), change(0.0049));
+        assertEquals(String.format("%.2f", -0.01), change(-0.006));
+        assertEquals(String.format("%.2f", -0.25), change(-0.25));
+        assertEquals(String.format("%.2f", 0.25), change(0.25));
+    }
+
+    private static String change(double value) {
+        StringBuilder row = new StringBuilder();
+        GitDiffAnalysis.appendChange(row, value);
+        return row.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// The scanner has to find what the regex extractors find on the same line
+class LexerExtractorTest {
+    // '.' in the Java variable regex stops at U+0085, U+2028 and U+2029, which do not end a line
+    @Test
+    void javaVariableStopsAtUnicodeLineTerminators() {
+        for (char terminator : new char[]{'\u0085', '\u2028', '\u2029'}) {
+            assertEquals("", java("int count = f(x)" + terminator + ";"));
+            assertEquals("", java("x" + terminator + "int total;"));
+            assertEquals("total/Variable", java("int total = 1;" + terminator + "int other;"));
+            assertEquals("total/Variable", java("int total;" + terminator + "x"));
+        }
+    }
+
+    private static String java(String line) {
+        List<String[]> entities = LexerExtractor.extract(line, Language.JAVA);
+        StringBuilder out = new StringBuilder();
+        for (String[] entity : entities) {
+            if (out.length() > 0) out.append(' ');
+            out.append(entity[0]).append('/').append(entity[1]);
+        }
+        return out.toString();
+    }
+}